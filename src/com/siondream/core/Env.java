@@ -26,10 +26,30 @@ public class Env {
 	public static int velocityIterations;
 	public static int positionIterations;
 	public static float physicsDeltaTime;
+	public static boolean pipelinedSimulation;
+	
+	// Rendering
+	public static boolean renderQueue;
+	public static boolean spatialGrid;
+	public static float spatialGridCellSize;
+	public static boolean batchByTexture;
+	public static float depthBandSize;
+	public static boolean bakeStaticMapLayers;
+	
+	// Assets
+	public static int loadingThreads;
+	public static float assetCacheBudget;
+	public static int prefetchTimeBudget;
+	public static String bundleDirectory;
+	public static boolean assetTelemetry;
+	public static boolean compressedTextures;
+	public static String archetypeCache;
+	public static int entityPoolMaxCapacity;
 	
 	// Particles
 	public static int particlePoolInitialCapacity;
 	public static int particlePoolMaxCapacity;
+	public static float particleBufferScale;
 	
 	// Debug
 	public static int debugLevel;
@@ -43,6 +63,7 @@ public class Env {
 	public static boolean drawStage;
 	public static boolean drawGrid;
 	public static boolean drawFPS;
+	public static boolean drawRenderStats;
 	
 	private static String TAG = "Globals";
 	private static Settings settings;
@@ -72,9 +93,27 @@ public class Env {
 		velocityIterations = settings.getInt("velocityIterations", 6);
 		positionIterations = settings.getInt("positionIterations", 10);
 		physicsDeltaTime = settings.getFloat("physicsDeltaTime", 0.01f);
+		pipelinedSimulation = settings.getBoolean("pipelinedSimulation", false);
+		
+		renderQueue = settings.getBoolean("renderQueue", true);
+		spatialGrid = settings.getBoolean("spatialGrid", false);
+		spatialGridCellSize = settings.getFloat("spatialGridCellSize", 8.0f);
+		batchByTexture = settings.getBoolean("batchByTexture", false);
+		depthBandSize = settings.getFloat("depthBandSize", 1.0f);
+		bakeStaticMapLayers = settings.getBoolean("bakeStaticMapLayers", true);
+		
+		loadingThreads = settings.getInt("loadingThreads", 1);
+		assetCacheBudget = settings.getFloat("assetCacheBudget", 0.0f);
+		prefetchTimeBudget = settings.getInt("prefetchTimeBudget", 4);
+		bundleDirectory = settings.getString("bundleDirectory", "");
+		assetTelemetry = settings.getBoolean("assetTelemetry", false);
+		compressedTextures = settings.getBoolean("compressedTextures", true);
+		archetypeCache = settings.getString("archetypeCache", "cache/archetypes.bin");
+		entityPoolMaxCapacity = settings.getInt("entityPoolMaxCapacity", 64);
 		
 		particlePoolInitialCapacity = settings.getInt("particlePoolInitialCapacity", 5);
 		particlePoolMaxCapacity = settings.getInt("particlePoolMaxCapacity", 20);
+		particleBufferScale = settings.getFloat("particleBufferScale", 1.0f);
 		
 		debugLevel = settings.getInt("debugLevel", Logger.INFO);
 		debug = debugLevel > Logger.ERROR;
@@ -87,5 +126,6 @@ public class Env {
 		drawStage = settings.getBoolean("drawStage", false);
 		drawGrid = settings.getBoolean("drawGrid", true);
 		drawFPS = settings.getBoolean("drawFPS", true);
+		drawRenderStats = settings.getBoolean("drawRenderStats", false);
 	}
 }
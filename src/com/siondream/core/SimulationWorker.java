@@ -0,0 +1,102 @@
+package com.siondream.core;
+
+import java.util.concurrent.Semaphore;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * @class SimulationWorker
+ *
+ * @brief Runs a task on a dedicated thread, one submission at a time
+ *
+ * submit() hands the task over to the worker and returns immediately, await()
+ * blocks until it has finished. The semaphores provide the happens-before
+ * edges, so whatever the task wrote is visible after await() returns.
+ * Neither call allocates.
+ */
+public class SimulationWorker implements Runnable, Disposable {
+
+	private final Runnable task;
+	private final Semaphore start;
+	private final Semaphore done;
+	private final Thread thread;
+	private volatile boolean running;
+	private boolean busy;
+	private Throwable error;
+
+	public SimulationWorker(Runnable task) {
+		this.task = task;
+		this.start = new Semaphore(0);
+		this.done = new Semaphore(0);
+		this.running = true;
+		this.busy = false;
+		this.error = null;
+
+		thread = new Thread(this, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void submit() {
+		if (busy) {
+			throw new GdxRuntimeException("simulation already running");
+		}
+
+		busy = true;
+		start.release();
+	}
+
+	public void await() {
+		if (!busy) {
+			return;
+		}
+
+		done.acquireUninterruptibly();
+		busy = false;
+
+		if (error != null) {
+			Throwable t = error;
+			error = null;
+			throw new GdxRuntimeException("simulation failed", t);
+		}
+	}
+
+	public boolean isBusy() {
+		return busy;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			start.acquireUninterruptibly();
+
+			if (!running) {
+				break;
+			}
+
+			try {
+				task.run();
+			}
+			catch (Throwable t) {
+				error = t;
+			}
+
+			done.release();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		await();
+		running = false;
+		start.release();
+
+		try {
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -18,6 +18,7 @@ import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.utils.Logger;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
 import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
@@ -36,7 +37,10 @@ import com.siondream.core.entity.factory.ComponentReaders.StateComponentReader;
 import com.siondream.core.entity.factory.ComponentReaders.TextureComponentReader;
 import com.siondream.core.entity.factory.ComponentReaders.TransformComponentReader;
 import com.siondream.core.entity.factory.EntityFactory;
+import com.siondream.core.entity.systems.ParticleEffectSystem;
 import com.siondream.core.entity.systems.PhysicsSystem;
+import com.siondream.core.entity.systems.RenderingSystem;
+import com.siondream.core.entity.systems.SpineAnimationSystem;
 import com.siondream.core.physics.CategoryBitsManager;
 import com.siondream.core.physics.CollisionHandler;
 import com.siondream.core.tweeners.ActorTweener;
@@ -49,6 +53,8 @@ public class SionGame extends Game implements InputProcessor {
 	
 	private Logger logger;
 	private ObjectMap<Class<? extends SionScreen>, SionScreen> screens;
+	private ObjectSet<String> screenGroups;
+	private ObjectSet<String> neededGroups;
 	private SionScreen nextScreen;
 	private SionScreen currentScreen;
 	private InputMultiplexer multiplexer;
@@ -72,10 +78,18 @@ public class SionGame extends Game implements InputProcessor {
 	private CategoryBitsManager categoryBitsManager;
 	private CollisionHandler collisionHandler;
 	
+	private Thread renderThread;
+	private boolean pipelined;
+	private SimulationWorker simulationWorker;
+	private double simulationFrameTime;
+	
 	@Override
 	public void create() {
 		Env.init(this);
 		
+		renderThread = Thread.currentThread();
+		pipelined = Env.pipelinedSimulation;
+		
 		logger = new Logger(TAG, Env.debugLevel);
 		
 		logger.info("initialising");
@@ -86,7 +100,14 @@ public class SionGame extends Game implements InputProcessor {
 		assets.loadGroup("base");
 		assets.finishLoading();
 		
+		if (assets.getTelemetry() != null) {
+			assets.getTelemetry().logReport();
+			assets.getTelemetry().writeChromeTrace(Gdx.files.local("asset-trace.json"));
+		}
+		
 		screens = new ObjectMap<Class<? extends SionScreen>, SionScreen>();
+		screenGroups = new ObjectSet<String>();
+		neededGroups = new ObjectSet<String>();
 		nextScreen = null;
 		currentScreen = null;
 		
@@ -136,12 +157,28 @@ public class SionGame extends Game implements InputProcessor {
 		entityFactory.registerReader(new StateComponentReader());
 		entityFactory.registerReader(new TextureComponentReader());
 		entityFactory.registerReader(new TransformComponentReader());
+		engine.addEntityListener(entityFactory);
+		
+		if (pipelined) {
+			logger.info("running the simulation on a worker thread");
+			
+			simulationWorker = new SimulationWorker(new Runnable() {
+				@Override
+				public void run() {
+					simulate(simulationFrameTime);
+				}
+			});
+		}
 	}
 
 	@Override
 	public void dispose() {
 		logger.info("shutting down");
 		
+		if (simulationWorker != null) {
+			simulationWorker.dispose();
+		}
+		
 		assets.dispose();
 		world.dispose();
 		stage.dispose();
@@ -160,11 +197,104 @@ public class SionGame extends Game implements InputProcessor {
 		
 		currentTime = newTime;
 		
+		// Screen asset groups load in the background within a slice of the frame
+		assets.update(Env.prefetchTimeBudget);
+		
+		if (pipelined) {
+			renderPipelined(deltaTime, frameTime);
+			return;
+		}
+		
+		if (currentScreen != null) {
+			currentScreen.render(deltaTime);
+		}
+		
+		simulate(frameTime);
+		stage.act(deltaTime);
+		
+		performScreenChange();
+	}
+	
+	/**
+	 * @return whether the simulation runs on a worker thread, overlapping the
+	 * rendering of the previous frame
+	 */
+	public boolean isPipelined() {
+		return pipelined;
+	}
+	
+	/**
+	 * @return true when called from the thread owning the GL context
+	 */
+	public boolean isRenderThread() {
+		return Thread.currentThread() == renderThread;
+	}
+	
+	/**
+	 * Blocks until the in-flight simulation step, if any, has finished
+	 */
+	public void waitForSimulation() {
+		if (simulationWorker != null) {
+			simulationWorker.await();
+		}
+	}
+	
+	/**
+	 * Frame N+1 is simulated on the worker thread while the render thread
+	 * draws the snapshot taken at the end of frame N. Screen logic, tweens,
+	 * UI actions, animation and particle systems run on the render thread
+	 * while the worker is idle.
+	 *
+	 * The worker is awaited before returning, so input events and posted
+	 * runnables, processed by the backend between frames, never run
+	 * alongside the simulation.
+	 */
+	private void renderPipelined(float deltaTime, double frameTime) {
+		simulationWorker.await();
+		
+		performScreenChange();
+		
 		if (currentScreen != null) {
 			currentScreen.render(deltaTime);
 		}
 		
+		ParticleEffectSystem particles = engine.getSystem(ParticleEffectSystem.class);
+		SpineAnimationSystem spine = engine.getSystem(SpineAnimationSystem.class);
+		RenderingSystem rendering = engine.getSystem(RenderingSystem.class);
+		
+		if (particles != null) {
+			particles.update(deltaTime);
+		}
+		
+		if (spine != null) {
+			spine.update(deltaTime);
+		}
+		
+		// Tweens drive actors, the camera and arbitrary callbacks
 		tweenManager.update(deltaTime);
+		stage.act(deltaTime);
+		
+		if (rendering != null) {
+			rendering.snapshot();
+		}
+		
+		simulationFrameTime = frameTime;
+		simulationWorker.submit();
+		
+		if (rendering != null) {
+			rendering.update(deltaTime);
+		}
+		
+		simulationWorker.await();
+	}
+	
+	private void simulate(double frameTime) {
+		float deltaTime = (float)frameTime;
+		
+		// Pipelined games update tweens on the render thread
+		if (!pipelined) {
+			tweenManager.update(deltaTime);
+		}
 		
 		accumulator += frameTime;
 		
@@ -173,21 +303,22 @@ public class SionGame extends Game implements InputProcessor {
 		while (accumulator >= Env.physicsDeltaTime) {
 			
 			if (physics != null) {
-				physics.update(Env.physicsDeltaTime);
+				physics.beginStep();
 			}
 			
 			world.step(Env.physicsDeltaTime, Env.velocityIterations, Env.positionIterations);
 			accumulator -= Env.physicsDeltaTime;
 			
 			if (physics != null) {
-				physics.interpolate(Env.physicsDeltaTime, (float)(accumulator / Env.physicsDeltaTime));
+				physics.endStep();
 			}
 		}
 		
-		engine.update(deltaTime);
-		stage.act(deltaTime);
+		if (physics != null) {
+			physics.interpolate((float)(accumulator / Env.physicsDeltaTime));
+		}
 		
-		performScreenChange();
+		engine.update(deltaTime);
 	}
 
 	@Override
@@ -199,6 +330,8 @@ public class SionGame extends Game implements InputProcessor {
 
 	@Override
 	public void pause() {
+		waitForSimulation();
+		
 		if (currentScreen != null) {
 			currentScreen.pause();
 		}
@@ -229,12 +362,25 @@ public class SionGame extends Game implements InputProcessor {
 		
 		if (screen != null) {
 			nextScreen = screen;
+			requestGroups(screen);
 		}
 		else {
 			logger.error("invalid screen " + type.getName());
 		}
 	}
 	
+	/**
+	 * Starts loading the asset groups of a screen in the background, so
+	 * switching to it later does not have to wait
+	 */
+	public void prefetchScreen(Class<? extends SionScreen> type) {
+		SionScreen screen = screens.get(type);
+		
+		if (screen != null) {
+			requestGroups(screen);
+		}
+	}
+	
 	public Assets getAssets() {
 		return assets;
 	}
@@ -301,11 +447,87 @@ public class SionGame extends Game implements InputProcessor {
 	
 	private void performScreenChange() {
 		if (nextScreen != null) {
+			// The current screen keeps running until the next one has its assets
+			if (!areGroupsLoaded(nextScreen)) {
+				return;
+			}
+			
 			logger.info("switching to screen " + screens.findKey(nextScreen, false));
 			multiplexer.removeProcessor(currentScreen);
 			setScreenInternal(nextScreen);
 			multiplexer.addProcessor(currentScreen);
 			nextScreen = null;
+			
+			// Entities of the previous screen are unlikely to be spawned again
+			entityFactory.clearPools();
+			
+			for (Class<?> type : currentScreen.getNextScreens()) {
+				SionScreen screen = screens.get(type.asSubclass(SionScreen.class));
+				
+				if (screen != null) {
+					requestGroups(screen);
+				}
+			}
+			
+			releaseGroups();
+		}
+	}
+	
+	private void requestGroups(SionScreen screen) {
+		for (String group : screen.getAssetGroups()) {
+			if (screenGroups.add(group)) {
+				assets.loadGroup(group);
+			}
+		}
+	}
+	
+	private boolean areGroupsLoaded(SionScreen screen) {
+		for (String group : screen.getAssetGroups()) {
+			if (!assets.isGroupLoaded(group)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Unloads screen groups neither the current screen nor the screens
+	 * likely to follow it need
+	 */
+	private void releaseGroups() {
+		neededGroups.clear();
+		addGroups(currentScreen, neededGroups);
+		
+		for (Class<?> type : currentScreen.getNextScreens()) {
+			addGroups(screens.get(type.asSubclass(SionScreen.class)), neededGroups);
+		}
+		
+		ObjectSet.SetIterator<String> it = screenGroups.iterator();
+		boolean released = false;
+		
+		while (it.hasNext()) {
+			String group = it.next();
+			
+			if (!neededGroups.contains(group)) {
+				assets.unloadGroup(group);
+				it.remove();
+				released = true;
+			}
+		}
+		
+		RenderingSystem rendering = engine.getSystem(RenderingSystem.class);
+		
+		if (released && rendering != null) {
+			rendering.resetRenderIDs();
+		}
+	}
+	
+	private static void addGroups(SionScreen screen, ObjectSet<String> groups) {
+		if (screen != null) {
+			for (String group : screen.getAssetGroups()) {
+				groups.add(group);
+			}
 		}
 	}
 	
@@ -6,6 +6,26 @@ import com.badlogic.gdx.utils.Disposable;
 
 public abstract class SionScreen implements InputProcessor, Screen, Disposable {
 	
+	private static final String[] NO_GROUPS = new String[0];
+	private static final Class<?>[] NO_SCREENS = new Class<?>[0];
+	
+	/**
+	 * @return asset groups that must be loaded before the screen is shown,
+	 * the game loads them in the background and releases them once the
+	 * screen is left
+	 */
+	public String[] getAssetGroups() {
+		return NO_GROUPS;
+	}
+	
+	/**
+	 * @return screens likely to follow this one, their asset groups are
+	 * prefetched in the background while this screen is active
+	 */
+	public Class<?>[] getNextScreens() {
+		return NO_SCREENS;
+	}
+	
 	@Override
 	public void render(float delta) {
 		// TODO Auto-generated method stub
@@ -30,6 +30,7 @@ import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.JsonValue.JsonIterator;
 import com.badlogic.gdx.utils.Logger;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.siondream.core.Env;
 
 /**
@@ -39,13 +40,15 @@ import com.siondream.core.Env;
  * 
  * @brief Asynchronous asset loader for AnimationData objects
  *
+ * Data built in loadAsync() is kept per file name until loadSync() picks it
+ * up, so a single instance can load several files at the same time.
  */
 public class SpriteAnimationLoader extends AsynchronousAssetLoader<SpriteAnimationData, SpriteAnimationLoader.AnimationParameter > {
 
 	static public class AnimationParameter extends AssetLoaderParameters<SpriteAnimationData> {
 	}
 	
-	private SpriteAnimationData animationData = null;
+	private ObjectMap<String, SpriteAnimationData> pending;
 	private Logger logger;
 	
 	/**
@@ -56,7 +59,7 @@ public class SpriteAnimationLoader extends AsynchronousAssetLoader<SpriteAnimati
 	public SpriteAnimationLoader(FileHandleResolver resolver) {
 		super(resolver);
 		
-		animationData = null;
+		pending = new ObjectMap<String, SpriteAnimationData>();
 		logger = new Logger("Animation", Env.debugLevel);
 	}
 	
@@ -67,7 +70,7 @@ public class SpriteAnimationLoader extends AsynchronousAssetLoader<SpriteAnimati
 	public void loadAsync(AssetManager manager, String fileName, FileHandle file, AnimationParameter parameter) {
 		logger.info("loading " + fileName);
 		
-		animationData = new SpriteAnimationData();
+		SpriteAnimationData animationData = new SpriteAnimationData();
 		
 		// Retrieve texture
 		animationData.texture = manager.get(stripExtension(fileName) + ".png", Texture.class);
@@ -91,7 +94,7 @@ public class SpriteAnimationLoader extends AsynchronousAssetLoader<SpriteAnimati
 				String frames = animationValue.getString("frames");
 				
 				Animation animation = new Animation(animationData.frameDuration,
-													getAnimationFrames(animationData.texture, frames),
+													getAnimationFrames(animationData, frames),
 													getPlayMode(animationValue.getString("mode", "normal")));
 				animationData.animations.put(name, animation);
 				
@@ -105,6 +108,10 @@ public class SpriteAnimationLoader extends AsynchronousAssetLoader<SpriteAnimati
 		} catch (Exception e) {
 			logger.error("error loading file " + fileName + " " + e.getMessage());
 		}
+		
+		synchronized (pending) {
+			pending.put(fileName, animationData);
+		}
 	}
 
 	/**
@@ -112,7 +119,9 @@ public class SpriteAnimationLoader extends AsynchronousAssetLoader<SpriteAnimati
 	 */
 	@Override
 	public SpriteAnimationData loadSync(AssetManager manager, String fileName, FileHandle file, AnimationParameter parameter) {
-		return animationData;
+		synchronized (pending) {
+			return pending.remove(fileName);
+		}
 	}
 
 	/**
@@ -120,6 +129,11 @@ public class SpriteAnimationLoader extends AsynchronousAssetLoader<SpriteAnimati
 	 */
 	@Override
 	public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, AnimationParameter parameter) {
+		// Left behind by an earlier load of the file that failed before loadSync()
+		synchronized (pending) {
+			pending.remove(fileName);
+		}
+		
 		Array<AssetDescriptor> dependencies = new Array<AssetDescriptor>();
 		dependencies.add(new AssetDescriptor<Texture>(stripExtension(fileName) + ".png", Texture.class));
 		
@@ -157,8 +171,9 @@ public class SpriteAnimationLoader extends AsynchronousAssetLoader<SpriteAnimati
 		}
 	}
 	
-	private Array<TextureRegion> getAnimationFrames(Texture texture, String frames) {
+	private Array<TextureRegion> getAnimationFrames(SpriteAnimationData animationData, String frames) {
 		Array<TextureRegion> regions = new Array<TextureRegion>();
+		Texture texture = animationData.texture;
 		
 		if (frames != null) {
 			String[] framesArray = frames.replaceAll(" ", "").split(",");
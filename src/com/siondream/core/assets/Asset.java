@@ -9,11 +9,18 @@ public class Asset implements Json.Serializable  {
 	public String path;
 	public AssetLoaderParameters parameters;
 	
+	// Optional ETC1 version of a texture, defaults to the path with an .etc1 extension
+	public String compressed;
+	
 	@Override
 	public void write(Json json) {
 		json.writeValue("assetType", type.getName());
 		json.writeValue("path", path);
 		json.writeValue("parameters", parameters);
+		
+		if (compressed != null) {
+			json.writeValue("compressed", compressed);
+		}
 	}
 	
 	@Override
@@ -28,5 +35,6 @@ public class Asset implements Json.Serializable  {
 		
 		JsonValue parametersValue = jsonData.get("parameters");
 		parameters = parametersValue != null ? json.fromJson(AssetLoaderParameters.class, parametersValue.toString()) : null;
+		compressed = jsonData.getString("compressed", null);
 	}
 }
\ No newline at end of file
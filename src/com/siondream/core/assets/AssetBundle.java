@@ -0,0 +1,330 @@
+package com.siondream.core.assets;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.StreamUtils;
+
+/**
+ * @class AssetBundle
+ *
+ * @brief Read only view over a bundle produced by tools/bundle/bundle.py
+ *
+ * Layout, big endian:
+ *
+ * - 4 bytes: magic, "SNBL"
+ * - int: version
+ * - int: number of entries
+ * - per entry: short path length, UTF-8 path, int offset, int length
+ * - entry data
+ *
+ * Bundles backed by a real file are memory mapped, entries are served as
+ * slices of the mapping without copying. Bundles inside an APK can't be
+ * mapped, only their table of contents is kept in memory and every entry is
+ * streamed from its offset when read. Skipping to the offset is a seek only
+ * if the APK stores the bundle uncompressed, add the "bundle" extension to
+ * the noCompress aapt option of the Android project.
+ */
+public class AssetBundle {
+	
+	public static final int MAGIC = 0x534e424c;
+	public static final int VERSION = 1;
+	
+	private String name;
+	private FileHandle file;
+	private ByteBuffer buffer;
+	private ObjectMap<String, Entry> entries;
+	
+	public AssetBundle(FileHandle file) {
+		this.name = file.path();
+		this.file = file;
+		this.buffer = isMappable(file) ? map(file) : null;
+		this.entries = new ObjectMap<String, Entry>();
+		
+		readTableOfContents();
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public boolean contains(String path) {
+		return entries.containsKey(path);
+	}
+	
+	/**
+	 * @return size of the entry in bytes, -1 if it does not exist
+	 */
+	public int getLength(String path) {
+		Entry entry = entries.get(path);
+		return entry != null ? entry.length : -1;
+	}
+	
+	/**
+	 * @return the entry contents, a slice sharing the bundle memory if it is
+	 * mapped and a copy of the entry alone otherwise, null if it does not exist
+	 */
+	public ByteBuffer getEntry(String path) {
+		Entry entry = entries.get(path);
+		
+		if (entry == null) {
+			return null;
+		}
+		
+		if (buffer == null) {
+			return ByteBuffer.wrap(readBytes(path));
+		}
+		
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(entry.offset + entry.length);
+		slice.position(entry.offset);
+		return slice.slice();
+	}
+	
+	/**
+	 * @return stream over the entry, null if it does not exist
+	 */
+	public InputStream read(String path) {
+		Entry entry = entries.get(path);
+		
+		if (entry == null) {
+			return null;
+		}
+		
+		if (buffer != null) {
+			return new ByteBufferInputStream(getEntry(path));
+		}
+		
+		InputStream input = file.read();
+		
+		try {
+			skipFully(input, entry.offset);
+		}
+		catch (IOException e) {
+			StreamUtils.closeQuietly(input);
+			throw new GdxRuntimeException("error reading " + path + " from " + name, e);
+		}
+		
+		return new EntryInputStream(input, entry.length);
+	}
+	
+	/**
+	 * @return a copy of the entry contents, null if it does not exist
+	 */
+	public byte[] readBytes(String path) {
+		Entry entry = entries.get(path);
+		
+		if (entry == null) {
+			return null;
+		}
+		
+		byte[] bytes = new byte[entry.length];
+		
+		if (buffer != null) {
+			getEntry(path).get(bytes);
+			return bytes;
+		}
+		
+		DataInputStream input = new DataInputStream(read(path));
+		
+		try {
+			input.readFully(bytes);
+			return bytes;
+		}
+		catch (IOException e) {
+			throw new GdxRuntimeException("error reading " + path + " from " + name, e);
+		}
+		finally {
+			StreamUtils.closeQuietly(input);
+		}
+	}
+	
+	public int getNumEntries() {
+		return entries.size;
+	}
+	
+	private void readTableOfContents() {
+		DataInputStream toc = new DataInputStream(new BufferedInputStream(file.read()));
+		
+		try {
+			if (toc.readInt() != MAGIC) {
+				throw new GdxRuntimeException(name + " is not an asset bundle");
+			}
+			
+			int version = toc.readInt();
+			
+			if (version != VERSION) {
+				throw new GdxRuntimeException(name + " has unsupported version " + version);
+			}
+			
+			int numEntries = toc.readInt();
+			
+			for (int i = 0; i < numEntries; ++i) {
+				byte[] pathBytes = new byte[toc.readUnsignedShort()];
+				toc.readFully(pathBytes);
+				
+				Entry entry = new Entry();
+				entry.offset = toc.readInt();
+				entry.length = toc.readInt();
+				entries.put(new String(pathBytes, "UTF-8"), entry);
+			}
+		}
+		catch (IOException e) {
+			throw new GdxRuntimeException("error reading " + name, e);
+		}
+		finally {
+			StreamUtils.closeQuietly(toc);
+		}
+	}
+	
+	private static boolean isMappable(FileHandle file) {
+		return file.type() != FileType.Classpath && file.file().exists();
+	}
+	
+	private static ByteBuffer map(FileHandle file) {
+		RandomAccessFile input = null;
+		
+		try {
+			input = new RandomAccessFile(file.file(), "r");
+			FileChannel channel = input.getChannel();
+			
+			// The mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		catch (IOException e) {
+			throw new GdxRuntimeException("error mapping " + file.path(), e);
+		}
+		finally {
+			if (input != null) {
+				try { input.close(); } catch (IOException e) {}
+			}
+		}
+	}
+	
+	private static void skipFully(InputStream input, long count) throws IOException {
+		while (count > 0) {
+			long skipped = input.skip(count);
+			
+			if (skipped <= 0) {
+				// Some streams only skip what they have buffered, read a byte to make progress
+				if (input.read() == -1) {
+					throw new IOException("unexpected end of bundle");
+				}
+				
+				skipped = 1;
+			}
+			
+			count -= skipped;
+		}
+	}
+	
+	private static class Entry {
+		int offset;
+		int length;
+	}
+	
+	/**
+	 * Reads at most the length of an entry from a stream positioned at its start
+	 */
+	private static class EntryInputStream extends FilterInputStream {
+		private int remaining;
+		
+		public EntryInputStream(InputStream input, int length) {
+			super(input);
+			this.remaining = length;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			
+			int value = in.read();
+			
+			if (value != -1) {
+				--remaining;
+			}
+			
+			return value;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			
+			int read = in.read(bytes, offset, Math.min(length, remaining));
+			
+			if (read > 0) {
+				remaining -= read;
+			}
+			
+			return read;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(Math.min(n, remaining));
+			remaining -= skipped;
+			return skipped;
+		}
+		
+		@Override
+		public int available() throws IOException {
+			return Math.min(in.available(), remaining);
+		}
+		
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+	
+	private static class ByteBufferInputStream extends InputStream {
+		private ByteBuffer buffer;
+		
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+			return length;
+		}
+		
+		@Override
+		public long skip(long n) {
+			int skipped = (int)Math.min(n, buffer.remaining());
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+		
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
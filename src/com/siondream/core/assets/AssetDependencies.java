@@ -0,0 +1,115 @@
+package com.siondream.core.assets;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.loaders.AssetLoader;
+import com.badlogic.gdx.assets.loaders.BitmapFontLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.ParticleEffectLoader;
+import com.badlogic.gdx.assets.loaders.SkinLoader;
+import com.badlogic.gdx.assets.loaders.TextureAtlasLoader;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Logger;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.esotericsoftware.spine.AnimationStateData;
+import com.esotericsoftware.spine.SkeletonData;
+import com.siondream.core.Env;
+import com.siondream.core.animation.SpriteAnimationData;
+import com.siondream.core.animation.SpriteAnimationLoader;
+import com.siondream.core.spine.AnimationStateDataLoader;
+import com.siondream.core.spine.SkeletonDataLoader;
+
+/**
+ * @class AssetDependencies
+ *
+ * @brief Resolves the files an asset needs, its dependencies included
+ *
+ * Closures are computed once per file through getDependencies() and cached.
+ * Computing one parses the TMX, atlas, skin or skeleton files involved, so
+ * Assets only calls it from its dependency thread and hands copies of the
+ * closures over to the render thread.
+ * Several built-in loaders keep the file being loaded in an instance field
+ * from getDependencies() on, so this class owns its own loaders instead of
+ * borrowing the ones the lanes may be using on their loader threads.
+ *
+ * Only used from one thread at a time.
+ */
+class AssetDependencies {
+	
+	private Logger logger;
+	private ObjectMap<Class<?>, AssetLoader<?, ?>> loaders;
+	private ObjectMap<String, ObjectSet<String>> closures;
+	
+	AssetDependencies(FileHandleResolver resolver) {
+		logger = new Logger("AssetDependencies", Env.debugLevel);
+		closures = new ObjectMap<String, ObjectSet<String>>();
+		
+		// Assets of any other type have no dependencies
+		loaders = new ObjectMap<Class<?>, AssetLoader<?, ?>>();
+		loaders.put(TextureAtlas.class, new TextureAtlasLoader(resolver));
+		loaders.put(BitmapFont.class, new BitmapFontLoader(resolver));
+		loaders.put(ParticleEffect.class, new ParticleEffectLoader(resolver));
+		loaders.put(Skin.class, new SkinLoader(resolver));
+		loaders.put(TiledMap.class, new TmxMapLoader(resolver));
+		loaders.put(SpriteAnimationData.class, new SpriteAnimationLoader(resolver));
+		loaders.put(SkeletonData.class, new SkeletonDataLoader(resolver));
+		loaders.put(AnimationStateData.class, new AnimationStateDataLoader(resolver));
+	}
+	
+	/**
+	 * @return the file name followed by everything it transitively depends on, do not modify
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	ObjectSet<String> get(String fileName, Class<?> type, AssetLoaderParameters parameters) {
+		ObjectSet<String> closure = closures.get(fileName);
+		
+		if (closure != null) {
+			return closure;
+		}
+		
+		closure = new ObjectSet<String>();
+		closure.add(fileName);
+		
+		// Registered before recursing so dependency cycles terminate
+		closures.put(fileName, closure);
+		
+		AssetLoader loader = loaders.get(type);
+		
+		if (loader == null) {
+			return closure;
+		}
+		
+		try {
+			Array<AssetDescriptor> dependencies = loader.getDependencies(fileName, loader.resolve(fileName), parameters);
+			
+			if (dependencies != null) {
+				for (int i = 0; i < dependencies.size; ++i) {
+					AssetDescriptor dependency = dependencies.get(i);
+					closure.addAll(get(dependency.fileName, dependency.type, dependency.params));
+				}
+			}
+		}
+		catch (Exception e) {
+			logger.error("error resolving dependencies of " + fileName + " " + e.getMessage());
+		}
+		
+		return closure;
+	}
+	
+	static boolean overlap(ObjectSet<String> closure, ObjectSet<String> files) {
+		for (String fileName : closure) {
+			if (files.contains(fileName)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
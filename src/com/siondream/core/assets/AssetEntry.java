@@ -0,0 +1,41 @@
+package com.siondream.core.assets;
+
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+
+/**
+ * @class AssetEntry
+ *
+ * @brief Bookkeeping for an asset listed in one or more groups
+ *
+ * references counts the loaded groups holding the asset, an asset with no
+ * references stays resident until the cache needs its memory back. The lane
+ * loading it is assigned when it is first requested.
+ */
+class AssetEntry {
+	final String path;
+	final Class<?> type;
+	final AssetLoaderParameters<?> parameters;
+	AssetManager manager;
+	int references;
+	int holds;
+	boolean requested;
+	long bytes;
+	volatile long lastUsed;
+	long trimStamp;
+	volatile Object asset;
+	
+	AssetEntry(Asset asset) {
+		this.path = asset.path;
+		this.type = asset.type;
+		this.parameters = asset.parameters;
+		this.manager = null;
+		this.references = 0;
+		this.holds = 0;
+		this.requested = false;
+		this.bytes = 0;
+		this.lastUsed = 0;
+		this.trimStamp = 0;
+		this.asset = null;
+	}
+}
@@ -0,0 +1,57 @@
+package com.siondream.core.assets;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * @class AssetHandle
+ *
+ * @brief Typed reference to an asset of a group, resolved without any lookup
+ *
+ * Handles are created by Assets when groups are registered and stay the same
+ * object for the lifetime of Assets, so they can be fetched once and kept.
+ * A handle is valid while its group is loaded, even if other groups still
+ * hold the asset once it is unloaded.
+ */
+public class AssetHandle<T> {
+	
+	private final String group;
+	private final AssetEntry entry;
+	volatile boolean groupLoaded;
+	
+	AssetHandle(String group, AssetEntry entry) {
+		this.group = group;
+		this.entry = entry;
+		this.groupLoaded = false;
+	}
+	
+	/**
+	 * @return the loaded asset
+	 * @throws GdxRuntimeException if the group of the handle is not loaded
+	 */
+	@SuppressWarnings("unchecked")
+	public T get() {
+		Object asset = entry.asset;
+		
+		if (!groupLoaded || asset == null) {
+			throw new GdxRuntimeException("asset " + entry.path + " of group " + group + " is not loaded");
+		}
+		
+		return (T)asset;
+	}
+	
+	public boolean isValid() {
+		return groupLoaded && entry.asset != null;
+	}
+	
+	public String getPath() {
+		return entry.path;
+	}
+	
+	public Class<?> getType() {
+		return entry.type;
+	}
+	
+	public String getGroup() {
+		return group;
+	}
+}
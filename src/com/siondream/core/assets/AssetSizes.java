@@ -0,0 +1,88 @@
+package com.siondream.core.assets;
+
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ETC1TextureData;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * @class AssetSizes
+ *
+ * @brief Estimates the memory held by loaded assets
+ *
+ * Only GPU textures are accounted for, sized after their pixel format. Assets
+ * referencing textures (atlases, fonts and maps) report the sum of their
+ * textures, textures shared between assets are counted once per asset.
+ */
+public class AssetSizes {
+
+	public static long estimate(Object asset) {
+		if (asset instanceof Texture) {
+			return getTextureBytes((Texture)asset);
+		}
+		
+		ObjectSet<Texture> textures = new ObjectSet<Texture>();
+		
+		if (asset instanceof TextureAtlas) {
+			textures.addAll(((TextureAtlas)asset).getTextures());
+		}
+		else if (asset instanceof BitmapFont) {
+			for (TextureRegion region : ((BitmapFont)asset).getRegions()) {
+				textures.add(region.getTexture());
+			}
+		}
+		else if (asset instanceof TiledMap) {
+			for (TiledMapTileSet tileSet : ((TiledMap)asset).getTileSets()) {
+				for (TiledMapTile tile : tileSet) {
+					textures.add(tile.getTextureRegion().getTexture());
+				}
+			}
+		}
+		
+		long bytes = 0;
+		
+		for (Texture texture : textures) {
+			bytes += getTextureBytes(texture);
+		}
+		
+		return bytes;
+	}
+	
+	public static long getTextureBytes(Texture texture) {
+		TextureData data = texture.getTextureData();
+		long pixels = (long)texture.getWidth() * texture.getHeight();
+		
+		// ETC1 stores 4x4 blocks in 8 bytes, its reported format is the decoding fallback
+		long bytes = data instanceof ETC1TextureData ? pixels / 2 : pixels * getBytesPerPixel(data.getFormat());
+		
+		// A full mipmap chain adds a third of the base level
+		return data.useMipMaps() ? bytes * 4 / 3 : bytes;
+	}
+	
+	public static int getBytesPerPixel(Format format) {
+		if (format == null) {
+			return 4;
+		}
+		
+		switch (format) {
+		case Alpha:
+		case Intensity:
+			return 1;
+		case LuminanceAlpha:
+		case RGB565:
+		case RGBA4444:
+			return 2;
+		case RGB888:
+			return 3;
+		default:
+			return 4;
+		}
+	}
+}
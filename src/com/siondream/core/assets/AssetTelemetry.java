@@ -0,0 +1,326 @@
+package com.siondream.core.assets;
+
+import java.util.Comparator;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AssetLoader;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.SynchronousAssetLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Logger;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.siondream.core.Env;
+
+/**
+ * @class AssetTelemetry
+ *
+ * @brief Records how long every asset spends in each loading phase
+ *
+ * instrument() wraps the loaders of an AssetManager so each asset records:
+ *
+ * - dependencies: resolving its dependencies (parses the file for some types)
+ * - wait: from having its dependencies resolved to starting its own load
+ * - async: CPU side decoding on the loader thread
+ * - sync: work on the render thread, including GL uploads
+ * - bytes: size of the file read
+ *
+ * Records can be logged as a report sorted by total time or written as a
+ * Chrome trace (chrome://tracing) showing every lane and the render thread.
+ *
+ * Every instrumented manager is a lane with its own records, the same file
+ * loaded by two lanes gets two records. Loader threads of every lane record
+ * concurrently, records are only touched while holding the telemetry lock.
+ */
+public class AssetTelemetry {
+	
+	private static final Class<?>[] NO_TYPES = new Class<?>[0];
+	
+	private Logger logger;
+	private Array<ObjectMap<String, Record>> lanes;
+	private long startTime;
+	
+	public AssetTelemetry() {
+		logger = new Logger("AssetTelemetry", Env.debugLevel);
+		lanes = new Array<ObjectMap<String, Record>>();
+		startTime = TimeUtils.nanoTime();
+	}
+	
+	/**
+	 * Replaces the loaders registered for the given types with timed wrappers
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void instrument(AssetManager manager, FileHandleResolver resolver, Class<?>... types) {
+		int lane = addLane();
+		
+		for (Class<?> type : types != null ? types : NO_TYPES) {
+			AssetLoader loader = manager.getLoader(type);
+			
+			if (loader instanceof AsynchronousAssetLoader) {
+				manager.setLoader(type, new TimedAsyncLoader(this, lane, resolver, (AsynchronousAssetLoader)loader));
+			}
+			else if (loader instanceof SynchronousAssetLoader) {
+				manager.setLoader(type, new TimedSyncLoader(this, lane, resolver, (SynchronousAssetLoader)loader));
+			}
+		}
+	}
+	
+	public synchronized void clear() {
+		for (int i = 0; i < lanes.size; ++i) {
+			lanes.get(i).clear();
+		}
+		
+		startTime = TimeUtils.nanoTime();
+	}
+	
+	/**
+	 * @return one line per asset, slowest first
+	 */
+	public synchronized String getReport() {
+		Array<Record> sorted = getSortedRecords();
+		StringBuilder builder = new StringBuilder();
+		long totalBytes = 0;
+		
+		builder.append(String.format("%10s %10s %10s %10s %10s %10s %4s  %s\n",
+									 "total ms", "deps ms", "wait ms", "async ms", "sync ms", "KB", "lane", "asset"));
+		
+		for (Record record : sorted) {
+			builder.append(String.format("%10.2f %10.2f %10.2f %10.2f %10.2f %10.1f %4d  %s (%s)\n",
+										 toMillis(record.getTotal()),
+										 toMillis(record.dependenciesEnd - record.dependenciesStart),
+										 toMillis(record.getWait()),
+										 toMillis(record.asyncEnd - record.asyncStart),
+										 toMillis(record.syncEnd - record.syncStart),
+										 record.bytes / 1024.0f,
+										 record.lane,
+										 record.fileName,
+										 record.type));
+			totalBytes += record.bytes;
+		}
+		
+		builder.append(sorted.size + " assets, " + totalBytes / 1024 + "KB read");
+		return builder.toString();
+	}
+	
+	public void logReport() {
+		logger.info("loading report\n" + getReport());
+	}
+	
+	/**
+	 * Writes every recorded phase in the Chrome trace event format
+	 */
+	public synchronized void writeChromeTrace(FileHandle file) {
+		StringBuilder builder = new StringBuilder();
+		boolean first = true;
+		
+		builder.append("{\"traceEvents\":[\n");
+		
+		for (Record record : getSortedRecords()) {
+			first = appendEvent(builder, first, record, "dependencies", record.dependenciesStart, record.dependenciesEnd, record.dependenciesThread);
+			first = appendEvent(builder, first, record, "async", record.asyncStart, record.asyncEnd, record.asyncThread);
+			first = appendEvent(builder, first, record, "sync", record.syncStart, record.syncEnd, record.syncThread);
+		}
+		
+		builder.append("\n]}\n");
+		file.writeString(builder.toString(), false);
+		
+		logger.info("trace written to " + file.path());
+	}
+	
+	synchronized Record getRecord(int lane, String fileName, String type) {
+		ObjectMap<String, Record> records = lanes.get(lane);
+		Record record = records.get(fileName);
+		
+		if (record == null) {
+			record = new Record(lane, fileName, type);
+			records.put(fileName, record);
+		}
+		
+		return record;
+	}
+	
+	synchronized void recordDependencies(Record record, long start, long end) {
+		record.dependenciesThread = Thread.currentThread().getId();
+		record.dependenciesStart = start;
+		record.dependenciesEnd = end;
+	}
+	
+	synchronized void recordAsync(Record record, long start, long end) {
+		record.asyncThread = Thread.currentThread().getId();
+		record.asyncStart = start;
+		record.asyncEnd = end;
+	}
+	
+	synchronized void recordSync(Record record, long start, long end) {
+		record.syncThread = Thread.currentThread().getId();
+		record.syncStart = start;
+		record.syncEnd = end;
+	}
+	
+	synchronized void recordBytes(Record record, long bytes) {
+		record.bytes = bytes;
+	}
+	
+	private synchronized int addLane() {
+		lanes.add(new ObjectMap<String, Record>());
+		return lanes.size - 1;
+	}
+	
+	private Array<Record> getSortedRecords() {
+		Array<Record> sorted = new Array<Record>();
+		
+		for (int i = 0; i < lanes.size; ++i) {
+			sorted.addAll(lanes.get(i).values().toArray());
+		}
+		
+		sorted.sort(new Comparator<Record>() {
+			@Override
+			public int compare(Record a, Record b) {
+				return Long.compare(b.getTotal(), a.getTotal());
+			}
+		});
+		
+		return sorted;
+	}
+	
+	private boolean appendEvent(StringBuilder builder, boolean first, Record record, String phase, long start, long end, long thread) {
+		if (start == 0 || end < start) {
+			return first;
+		}
+		
+		if (!first) {
+			builder.append(",\n");
+		}
+		
+		builder.append("{\"name\":\"").append(escape(record.fileName))
+			   .append("\",\"cat\":\"").append(phase)
+			   .append("\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(thread)
+			   .append(",\"ts\":").append((start - startTime) / 1000)
+			   .append(",\"dur\":").append(Math.max((end - start) / 1000, 1))
+			   .append(",\"args\":{\"lane\":").append(record.lane)
+			   .append(",\"type\":\"").append(record.type)
+			   .append("\",\"bytes\":").append(record.bytes)
+			   .append("}}");
+		
+		return false;
+	}
+	
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+	
+	private static float toMillis(long nanos) {
+		return nanos / 1000000.0f;
+	}
+	
+	static class Record {
+		final int lane;
+		final String fileName;
+		final String type;
+		long dependenciesStart;
+		long dependenciesEnd;
+		long dependenciesThread;
+		long asyncStart;
+		long asyncEnd;
+		long asyncThread;
+		long syncStart;
+		long syncEnd;
+		long syncThread;
+		long bytes;
+		
+		Record(int lane, String fileName, String type) {
+			this.lane = lane;
+			this.fileName = fileName;
+			this.type = type;
+		}
+		
+		long getWait() {
+			long loadStart = asyncStart != 0 ? asyncStart : syncStart;
+			return dependenciesEnd != 0 && loadStart > dependenciesEnd ? loadStart - dependenciesEnd : 0;
+		}
+		
+		long getTotal() {
+			return (dependenciesEnd - dependenciesStart) + (asyncEnd - asyncStart) + (syncEnd - syncStart);
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static class TimedAsyncLoader<T, P extends AssetLoaderParameters<T>> extends AsynchronousAssetLoader<T, P> {
+		private AssetTelemetry telemetry;
+		private int lane;
+		private AsynchronousAssetLoader<T, P> loader;
+		
+		public TimedAsyncLoader(AssetTelemetry telemetry, int lane, FileHandleResolver resolver, AsynchronousAssetLoader<T, P> loader) {
+			super(resolver);
+			this.telemetry = telemetry;
+			this.lane = lane;
+			this.loader = loader;
+		}
+		
+		@Override
+		public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, P parameter) {
+			Record record = telemetry.getRecord(lane, fileName, loader.getClass().getSimpleName());
+			long start = TimeUtils.nanoTime();
+			Array<AssetDescriptor> dependencies = loader.getDependencies(fileName, file, parameter);
+			telemetry.recordDependencies(record, start, TimeUtils.nanoTime());
+			return dependencies;
+		}
+		
+		@Override
+		public void loadAsync(AssetManager manager, String fileName, FileHandle file, P parameter) {
+			Record record = telemetry.getRecord(lane, fileName, loader.getClass().getSimpleName());
+			long bytes = file.exists() && !file.isDirectory() ? file.length() : 0;
+			long start = TimeUtils.nanoTime();
+			loader.loadAsync(manager, fileName, file, parameter);
+			telemetry.recordAsync(record, start, TimeUtils.nanoTime());
+			telemetry.recordBytes(record, bytes);
+		}
+		
+		@Override
+		public T loadSync(AssetManager manager, String fileName, FileHandle file, P parameter) {
+			Record record = telemetry.getRecord(lane, fileName, loader.getClass().getSimpleName());
+			long start = TimeUtils.nanoTime();
+			T asset = loader.loadSync(manager, fileName, file, parameter);
+			telemetry.recordSync(record, start, TimeUtils.nanoTime());
+			return asset;
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static class TimedSyncLoader<T, P extends AssetLoaderParameters<T>> extends SynchronousAssetLoader<T, P> {
+		private AssetTelemetry telemetry;
+		private int lane;
+		private SynchronousAssetLoader<T, P> loader;
+		
+		public TimedSyncLoader(AssetTelemetry telemetry, int lane, FileHandleResolver resolver, SynchronousAssetLoader<T, P> loader) {
+			super(resolver);
+			this.telemetry = telemetry;
+			this.lane = lane;
+			this.loader = loader;
+		}
+		
+		@Override
+		public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, P parameter) {
+			Record record = telemetry.getRecord(lane, fileName, loader.getClass().getSimpleName());
+			long start = TimeUtils.nanoTime();
+			Array<AssetDescriptor> dependencies = loader.getDependencies(fileName, file, parameter);
+			telemetry.recordDependencies(record, start, TimeUtils.nanoTime());
+			return dependencies;
+		}
+		
+		@Override
+		public T load(AssetManager manager, String fileName, FileHandle file, P parameter) {
+			Record record = telemetry.getRecord(lane, fileName, loader.getClass().getSimpleName());
+			long bytes = file.exists() && !file.isDirectory() ? file.length() : 0;
+			long start = TimeUtils.nanoTime();
+			T asset = loader.load(manager, fileName, file, parameter);
+			telemetry.recordSync(record, start, TimeUtils.nanoTime());
+			telemetry.recordBytes(record, bytes);
+			return asset;
+		}
+	}
+}
@@ -1,21 +1,42 @@
 package com.siondream.core.assets;
 
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetDescriptor;
 import com.badlogic.gdx.assets.AssetErrorListener;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.assets.loaders.AssetLoader;
 import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.JsonValue.JsonIterator;
 import com.badlogic.gdx.utils.Logger;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectMap.Entries;
+import com.badlogic.gdx.utils.ObjectMap.Entry;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+import com.badlogic.gdx.utils.async.ThreadUtils;
 import com.esotericsoftware.spine.AnimationStateData;
 import com.esotericsoftware.spine.SkeletonData;
 import com.siondream.core.Env;
@@ -26,41 +47,207 @@ import com.siondream.core.physics.PhysicsLoader;
 import com.siondream.core.spine.AnimationStateDataLoader;
 import com.siondream.core.spine.SkeletonDataLoader;
 
+/**
+ * @class Assets
+ *
+ * @brief Loads and unloads groups of assets described in a json file
+ *
+ * Assets are spread across several AssetManager lanes, each one decoding on
+ * its own loader thread, so independent files are parsed in parallel. GL
+ * uploads still happen on the render thread when update() is called.
+ *
+ * An asset is given a lane once its dependencies are known, they are resolved
+ * on a background thread the first time its group is loaded. Assets sharing
+ * files, directly or through their dependencies, go to the same lane so each
+ * file is loaded once. Only an asset depending on files already owned by two
+ * different lanes has the files of one of them loaded again.
+ *
+ * Progress and completion are tracked per group, listeners are notified from
+ * update() once every asset of a group is loaded.
+ *
+ * Assets are reference counted across groups, unloading a group only releases
+ * assets no other loaded group holds. Released assets stay resident while the
+ * estimated memory of everything loaded fits the cache budget, so a group
+ * loaded again soon does not hit the disk. Past the budget, the least recently
+ * used released assets are evicted first.
+ *
+ * Released assets sharing a file, directly or through their dependencies,
+ * with a group still loading are held until that group finishes, evicting
+ * them would drop the shared dependency and load it again from disk.
+ * swapGroups() relies on this to move from one group to another.
+ *
+ * If bundleDirectory is set and holds a <group>.bundle file packed by
+ * tools/bundle/bundle.py, the bundle is mounted when the group is first
+ * loaded and its files are served from it instead of being opened one by one.
+ * It is unmounted once the group is unloaded and no requested asset needs any
+ * of its files.
+ *
+ * Textures with an ETC1 variant next to them are uploaded compressed when the
+ * GPU supports it and compressedTextures is enabled, see CompressedTextureLoader.
+ *
+ * Every asset of a registered group gets an AssetHandle, resolving it does
+ * not involve any lookup. Path based lookups read a concurrent map of the
+ * loaded assets, updated one file at a time by update() as assets finish
+ * loading or get evicted, so get() takes no lock and may be called from any
+ * thread. Only the render thread falls back to the lanes for files missing
+ * from it, other threads get an exception instead.
+ */
 public class Assets implements Disposable, AssetErrorListener {
-
+	
+	public interface GroupListener {
+		public void groupLoaded(String group);
+	}
+	
 	private static final String TAG = "Assets";
+	private static final String ETC1_EXTENSION = "GL_OES_compressed_ETC1_RGB8_texture";
+	private static final Comparator<AssetEntry> LEAST_RECENTLY_USED = new Comparator<AssetEntry>() {
+		@Override
+		public int compare(AssetEntry a, AssetEntry b) {
+			return a.trimStamp < b.trimStamp ? -1 : (a.trimStamp > b.trimStamp ? 1 : 0);
+		}
+	};
 	private Logger logger;
-	private AssetManager manager;
+	private Array<AssetManager> managers;
+	private BundleFileHandleResolver resolver;
+	private AssetTelemetry telemetry;
+	private boolean compressedTextures;
+	private ObjectMap<String, String> textureVariants;
+	private ObjectMap<String, AssetBundle> bundles;
+	private ObjectMap<String, AssetManager> owners;
+	private ObjectMap<String, AssetManager> stemOwners;
+	private ObjectMap<String, AssetEntry> entries;
+	private ObjectMap<String, Array<AssetEntry>> heldEntries;
+	private AssetDependencies dependencies;
+	private AsyncExecutor dependencyExecutor;
+	private ObjectMap<String, ObjectSet<String>> closures;
+	private Array<Resolution> resolutions;
+	private Array<AssetEntry> unsizedEntries;
+	private long budget;
+	private long residentBytes;
+	private AtomicLong clock;
+	private ConcurrentHashMap<String, Object> loaded;
+	private Thread renderThread;
 	private ObjectMap<String, Array<Asset>> groups;
+	private ObjectMap<String, Array<AssetHandle<?>>> handles;
+	private ObjectSet<String> requestedGroups;
+	private Array<String> loadingGroups;
+	private Array<AssetEntry> victims;
+	private Array<GroupListener> listeners;
+	private int nextManager;
 	
 	public Assets(String assetFile) {
+		this(assetFile, Env.loadingThreads, (long)(Env.assetCacheBudget * 1024 * 1024));
+	}
+	
+	/**
+	 * @param budget bytes released assets may keep resident, 0 unloads them straight away
+	 */
+	public Assets(String assetFile, int numThreads, long budget) {
 		logger = new Logger(TAG, Env.debugLevel);
 		
-		logger.info("initialising");
+		logger.info("initialising with " + numThreads + " loading threads");
 		
-		manager = new AssetManager();
-//		manager.setErrorListener(this);
-		manager.setLoader(TiledMap.class, new TmxMapLoader(new InternalFileHandleResolver()));
-		manager.setLoader(PhysicsData.class, new PhysicsLoader(new InternalFileHandleResolver()));
-		manager.setLoader(SpriteAnimationData.class, new SpriteAnimationLoader(new InternalFileHandleResolver()));
-		manager.setLoader(SkeletonData.class, new SkeletonDataLoader(new InternalFileHandleResolver()));
-		manager.setLoader(AnimationStateData.class, new AnimationStateDataLoader(new InternalFileHandleResolver()));
+		resolver = new BundleFileHandleResolver(new InternalFileHandleResolver());
+		bundles = new ObjectMap<String, AssetBundle>();
+		telemetry = Env.assetTelemetry ? new AssetTelemetry() : null;
+		compressedTextures = Env.compressedTextures && Gdx.graphics.supportsExtension(ETC1_EXTENSION);
+		textureVariants = new ObjectMap<String, String>();
+		
+		logger.info("compressed textures " + (compressedTextures ? "enabled" : "disabled"));
+		
+		managers = new Array<AssetManager>();
+		
+		for (int i = 0; i < Math.max(numThreads, 1); ++i) {
+			managers.add(createManager());
+		}
+		
+		owners = new ObjectMap<String, AssetManager>();
+		stemOwners = new ObjectMap<String, AssetManager>();
+		entries = new ObjectMap<String, AssetEntry>();
+		heldEntries = new ObjectMap<String, Array<AssetEntry>>();
+		dependencies = new AssetDependencies(resolver);
+		dependencyExecutor = new AsyncExecutor(1);
+		closures = new ObjectMap<String, ObjectSet<String>>();
+		resolutions = new Array<Resolution>();
+		unsizedEntries = new Array<AssetEntry>();
+		this.budget = budget;
+		residentBytes = 0;
+		clock = new AtomicLong();
+		loaded = new ConcurrentHashMap<String, Object>();
+		renderThread = Thread.currentThread();
+		requestedGroups = new ObjectSet<String>();
+		loadingGroups = new Array<String>();
+		victims = new Array<AssetEntry>();
+		listeners = new Array<GroupListener>();
+		nextManager = 0;
 		
 		loadGroups(assetFile);
 	}
 	
+	/**
+	 * @return the loader used by the first lane, see getLoader(String, Class)
+	 */
 	public AssetLoader<?, ?> getLoader(Class<?> type) {
-		return manager.getLoader(type);
+		return managers.first().getLoader(type);
 	}
-		
+	
+	/**
+	 * @return the loader of the lane the file is assigned to, lanes do not share loaders
+	 */
+	public AssetLoader<?, ?> getLoader(String fileName, Class<?> type) {
+		return getManager(fileName).getLoader(type);
+	}
+	
+	/**
+	 * @return loading telemetry, null unless the assetTelemetry setting is enabled
+	 */
+	public AssetTelemetry getTelemetry() {
+		return telemetry;
+	}
+	
+	public void addListener(GroupListener listener) {
+		listeners.add(listener);
+	}
+	
+	public void removeListener(GroupListener listener) {
+		listeners.removeValue(listener, true);
+	}
+	
 	public void loadGroup(String groupName) {
 		logger.info("loading group " + groupName);
 		
 		Array<Asset> assets = groups.get(groupName, null);
 		
 		if (assets != null) {
+			// References are counted once per group, not once per call
+			if (!requestedGroups.add(groupName)) {
+				return;
+			}
+			
+			mountBundle(groupName);
+			
+			Array<AssetEntry> unassigned = new Array<AssetEntry>();
+			
 			for (Asset asset : assets) {
-				manager.load(asset.path, asset.type, asset.parameters);
+				AssetEntry entry = getEntry(asset);
+				entry.lastUsed = clock.incrementAndGet();
+				
+				if (entry.references++ == 0 && !entry.requested) {
+					if (entry.manager != null) {
+						request(entry);
+					}
+					else {
+						unassigned.add(entry);
+					}
+				}
+			}
+			
+			if (unassigned.size > 0) {
+				resolveLanes(unassigned);
+			}
+			
+			if (!loadingGroups.contains(groupName, false)) {
+				loadingGroups.add(groupName);
 			}
 		}
 		else {
@@ -74,45 +261,252 @@ public class Assets implements Disposable, AssetErrorListener {
 		Array<Asset> assets = groups.get(groupName, null);
 		
 		if (assets != null) {
+			if (!requestedGroups.remove(groupName)) {
+				return;
+			}
+			
+			loadingGroups.removeValue(groupName, false);
+			setGroupLoaded(groupName, false);
+			releaseHeld(groupName);
+			
+			Array<AssetEntry> released = new Array<AssetEntry>();
+			
 			for (Asset asset : assets) {
-				if (manager.isLoaded(asset.path, asset.type)) {
-					manager.unload(asset.path);
+				AssetEntry entry = entries.get(asset.path);
+				
+				if (entry != null && entry.references > 0 && --entry.references == 0 && entry.requested) {
+					released.add(entry);
 				}
 			}
+			
+			holdShared(released);
+			trim();
 		}
 		else {
 			logger.error("error unloading group " + groupName + ", not found");
 		}
 	}
 	
-	public synchronized <T> T get(String fileName) {
-		return manager.get(fileName);
+	/**
+	 * Loads a group and unloads another, only files the new group does not
+	 * need, directly or as dependencies, are released
+	 */
+	public void swapGroups(String from, String to) {
+		logger.info("swapping group " + from + " for " + to);
+		
+		if (!groups.containsKey(from) || !groups.containsKey(to)) {
+			logger.error("error swapping " + from + " for " + to + ", group not found");
+			return;
+		}
+		
+		// Unloading would drop the group that was just requested
+		if (from.equals(to)) {
+			return;
+		}
+		
+		// Requested first so assets listed in both keep their references
+		loadGroup(to);
+		unloadGroup(from);
+	}
+	
+	/**
+	 * @return the handle of an asset of the group, null if the group does not list it
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> AssetHandle<T> getHandle(String groupName, String fileName, Class<T> type) {
+		Array<AssetHandle<?>> groupHandles = handles.get(groupName);
+		
+		if (groupHandles == null) {
+			logger.error("group " + groupName + " not found");
+			return null;
+		}
+		
+		for (int i = 0; i < groupHandles.size; ++i) {
+			AssetHandle<?> handle = groupHandles.get(i);
+			
+			if (handle.getPath().equals(fileName)) {
+				if (handle.getType() == null || !type.isAssignableFrom(handle.getType())) {
+					logger.error("asset " + fileName + " is not a " + type.getSimpleName());
+					return null;
+				}
+				
+				return (AssetHandle<T>)handle;
+			}
+		}
+		
+		logger.error("asset " + fileName + " not found in group " + groupName);
+		return null;
 	}
 	
-	public synchronized <T> T get(String fileName, Class<T> type) {
-		return manager.get(fileName, type);
+	public Array<AssetHandle<?>> getHandles(String groupName) {
+		return handles.get(groupName);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public <T> T get(String fileName) {
+		Object asset = loaded.get(fileName);
+		
+		if (asset == null) {
+			return getFromLanes(fileName, null);
+		}
+		
+		touch(fileName);
+		return (T)asset;
+	}
+	
+	public <T> T get(String fileName, Class<T> type) {
+		Object asset = loaded.get(fileName);
+		
+		if (asset == null || !type.isInstance(asset)) {
+			return getFromLanes(fileName, type);
+		}
+		
+		touch(fileName);
+		return type.cast(asset);
 	}
 	
 	public <T> boolean isLoaded(String fileName, Class<T> type) {
-		return manager.isLoaded(fileName, type);
+		return type.isInstance(loaded.get(fileName));
 	}
 	
+	/**
+	 * Performs the render thread part of the loading on every lane
+	 *
+	 * @return true once every queued asset is loaded
+	 */
 	public boolean update() {
-		return manager.update();
+		boolean done = updateResolutions();
+		
+		for (int i = 0; i < managers.size; ++i) {
+			done &= managers.get(i).update();
+		}
+		
+		updateSizes();
+		notifyLoadedGroups();
+		return done;
+	}
+	
+	/**
+	 * Keeps updating until every asset is loaded or the given time has elapsed
+	 *
+	 * @return true once every queued asset is loaded
+	 */
+	public boolean update(int millis) {
+		long endTime = TimeUtils.millis() + millis;
+		
+		while (true) {
+			boolean done = update();
+			
+			if (done || TimeUtils.millis() > endTime) {
+				return done;
+			}
+			
+			ThreadUtils.yield();
+		}
 	}
 	
 	public void finishLoading() {
-		manager.finishLoading();
+		while (!update()) {
+			ThreadUtils.yield();
+		}
 	}
 	
 	public float getProgress() {
-		return manager.getProgress();
+		int loaded = 0;
+		int queued = 0;
+		
+		for (int i = 0; i < managers.size; ++i) {
+			AssetManager manager = managers.get(i);
+			loaded += manager.getLoadedAssets();
+			queued += manager.getQueuedAssets();
+		}
+		
+		return queued + loaded == 0 ? 1.0f : (float)loaded / (loaded + queued);
 	}
-
+	
+	/**
+	 * @return fraction of the assets of the group currently loaded
+	 */
+	public float getGroupProgress(String groupName) {
+		Array<Asset> assets = groups.get(groupName, null);
+		
+		if (assets == null || assets.size == 0) {
+			return 1.0f;
+		}
+		
+		int loaded = 0;
+		
+		for (int i = 0; i < assets.size; ++i) {
+			Asset asset = assets.get(i);
+			AssetManager manager = owners.get(asset.path);
+			
+			if (manager != null && manager.isLoaded(asset.path, asset.type)) {
+				++loaded;
+			}
+		}
+		
+		return (float)loaded / assets.size;
+	}
+	
+	public boolean isGroupLoaded(String groupName) {
+		return getGroupProgress(groupName) >= 1.0f;
+	}
+	
+	/**
+	 * @return estimated bytes held by loaded assets, referenced or not
+	 */
+	public long getResidentBytes() {
+		return residentBytes;
+	}
+	
+	public long getBudget() {
+		return budget;
+	}
+	
+	public void setBudget(long budget) {
+		this.budget = budget;
+		trim();
+	}
+	
+	/**
+	 * Evicts least recently used assets no loaded group holds until the
+	 * resident memory fits the budget
+	 */
+	public void trim() {
+		if (residentBytes > budget || budget == 0) {
+			// Assets still loading are evicted by updateSizes() once they finish
+			for (AssetEntry entry : entries.values()) {
+				if (entry.requested && entry.references == 0 && entry.holds == 0 &&
+					entry.manager.isLoaded(entry.path)) {
+					// Other threads keep touching lastUsed, sorting needs a stable key
+					entry.trimStamp = entry.lastUsed;
+					victims.add(entry);
+				}
+			}
+			
+			victims.sort(LEAST_RECENTLY_USED);
+			
+			for (int i = 0; i < victims.size && (residentBytes > budget || budget == 0); ++i) {
+				evict(victims.get(i));
+			}
+			
+			victims.clear();
+		}
+		
+		if (bundles.size > 0) {
+			releaseBundles();
+		}
+	}
+	
 	@Override
 	public void dispose() {
 		logger.info("shutting down");
-		manager.dispose();
+		
+		dependencyExecutor.dispose();
+		
+		for (int i = 0; i < managers.size; ++i) {
+			managers.get(i).dispose();
+		}
 	}
 	
 	@Override
@@ -120,11 +514,515 @@ public class Assets implements Disposable, AssetErrorListener {
 		logger.error("error loading " + asset.fileName + " message: " + throwable.getMessage());
 	}
 	
+	private AssetManager createManager() {
+		AssetManager manager = new AssetManager(resolver);
+//		manager.setErrorListener(this);
+		manager.setLoader(TiledMap.class, new TmxMapLoader(resolver));
+		manager.setLoader(Texture.class, new CompressedTextureLoader(resolver, compressedTextures, textureVariants));
+		
+		// Custom loaders keep the data loadAsync() reads per file name until
+		// loadSync(), names are only unique within one manager so every lane
+		// gets its own instances
+		manager.setLoader(PhysicsData.class, new PhysicsLoader(resolver));
+		manager.setLoader(SpriteAnimationData.class, new SpriteAnimationLoader(resolver));
+		manager.setLoader(SkeletonData.class, new SkeletonDataLoader(resolver));
+		manager.setLoader(AnimationStateData.class, new AnimationStateDataLoader(resolver));
+		
+		if (telemetry != null) {
+			telemetry.instrument(manager, resolver,
+								 Texture.class, Pixmap.class, TextureAtlas.class, BitmapFont.class,
+								 ParticleEffect.class, Skin.class, TiledMap.class, PhysicsData.class,
+								 SpriteAnimationData.class, SkeletonData.class, AnimationStateData.class);
+		}
+		
+		return manager;
+	}
+	
+	private void mountBundle(String groupName) {
+		if (Env.bundleDirectory.length() == 0 || bundles.containsKey(groupName)) {
+			return;
+		}
+		
+		FileHandle file = Gdx.files.internal(Env.bundleDirectory + "/" + groupName + ".bundle");
+		
+		if (file.exists()) {
+			AssetBundle bundle = new AssetBundle(file);
+			logger.info("mounting bundle " + file.path() + " with " + bundle.getNumEntries() + " files");
+			resolver.mount(bundle);
+			bundles.put(groupName, bundle);
+		}
+	}
+	
+	/**
+	 * Unmounts the bundles of unloaded groups none of whose files are requested
+	 * anymore, directly or as dependencies, dropping their memory
+	 */
+	private void releaseBundles() {
+		Entries<String, AssetBundle> it = bundles.entries();
+		
+		while (it.hasNext()) {
+			Entry<String, AssetBundle> entry = it.next();
+			
+			if (!requestedGroups.contains(entry.key) && !isBundleInUse(entry.value)) {
+				logger.info("unmounting bundle " + entry.value.getName());
+				resolver.unmount(entry.value);
+				it.remove();
+			}
+		}
+	}
+	
+	private boolean isBundleInUse(AssetBundle bundle) {
+		for (AssetEntry entry : entries.values()) {
+			// Released assets kept resident by the budget do not read files anymore
+			if (!entry.requested ||
+				(entry.references == 0 && entry.holds == 0 && entry.manager.isLoaded(entry.path))) {
+				continue;
+			}
+			
+			for (String fileName : getClosure(entry)) {
+				if (bundle.contains(BundleFileHandleResolver.normalise(fileName))) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	private AssetEntry getEntry(Asset asset) {
+		AssetEntry entry = entries.get(asset.path);
+		
+		if (entry == null) {
+			entry = new AssetEntry(asset);
+			entries.put(asset.path, entry);
+		}
+		
+		return entry;
+	}
+	
+	/**
+	 * Lanes and their bookkeeping are only touched by the render thread, other
+	 * threads asking for a file that is not published fail straight away
+	 */
+	private <T> T getFromLanes(String fileName, Class<T> type) {
+		if (Thread.currentThread() != renderThread) {
+			throw new GdxRuntimeException("asset " + fileName + " is not loaded");
+		}
+		
+		touch(fileName);
+		AssetManager manager = getManager(fileName);
+		return type != null ? manager.get(fileName, type) : manager.<T>get(fileName);
+	}
+	
+	/**
+	 * Marks the asset as recently used, entries are only added while groups
+	 * are registered so the map is safe to read from any thread
+	 */
+	private void touch(String fileName) {
+		AssetEntry entry = entries.get(fileName);
+		
+		if (entry != null) {
+			entry.lastUsed = clock.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Makes the file and everything the lane loaded for it visible to get()
+	 */
+	private void publish(AssetManager manager, String fileName) {
+		if (loaded.put(fileName, manager.get(fileName)) != null) {
+			return;
+		}
+		
+		Array<String> fileDependencies = manager.getDependencies(fileName);
+		
+		if (fileDependencies != null) {
+			for (int i = 0; i < fileDependencies.size; ++i) {
+				publish(manager, fileDependencies.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Gathers the file and everything the lane loaded for it
+	 */
+	private void addLoadedFiles(AssetManager manager, String fileName, Array<String> files) {
+		if (files.contains(fileName, false)) {
+			return;
+		}
+		
+		files.add(fileName);
+		Array<String> fileDependencies = manager.getDependencies(fileName);
+		
+		if (fileDependencies != null) {
+			for (int i = 0; i < fileDependencies.size; ++i) {
+				addLoadedFiles(manager, fileDependencies.get(i), files);
+			}
+		}
+	}
+	
+	/**
+	 * Withdraws the files the lanes no longer hold, or points them at the lane still holding them
+	 */
+	private void unpublish(Array<String> files) {
+		for (int i = 0; i < files.size; ++i) {
+			String fileName = files.get(i);
+			Object asset = null;
+			
+			for (int j = 0; j < managers.size && asset == null; ++j) {
+				AssetManager manager = managers.get(j);
+				
+				if (manager.isLoaded(fileName)) {
+					asset = manager.get(fileName);
+				}
+			}
+			
+			if (asset != null) {
+				loaded.put(fileName, asset);
+			}
+			else {
+				loaded.remove(fileName);
+			}
+		}
+	}
+	
+	private void evict(AssetEntry entry) {
+		logger.info("evicting " + entry.path + " (" + entry.bytes / 1024 + "KB)");
+		
+		// Unloading an asset that is not loaded throws, it may be a pending dependency
+		if (entry.manager.isLoaded(entry.path)) {
+			Array<String> files = new Array<String>();
+			addLoadedFiles(entry.manager, entry.path, files);
+			entry.manager.unload(entry.path);
+			unpublish(files);
+		}
+		
+		residentBytes -= entry.bytes;
+		entry.asset = null;
+		entry.bytes = 0;
+		entry.requested = false;
+		unsizedEntries.removeValue(entry, true);
+	}
+	
+	/**
+	 * Accounts for the memory of assets that finished loading since the last update
+	 */
+	private void updateSizes() {
+		boolean grown = false;
+		
+		for (int i = unsizedEntries.size - 1; i >= 0; --i) {
+			AssetEntry entry = unsizedEntries.get(i);
+			
+			if (entry.manager.isLoaded(entry.path)) {
+				entry.asset = entry.manager.get(entry.path);
+				entry.bytes = AssetSizes.estimate(entry.asset);
+				residentBytes += entry.bytes;
+				unsizedEntries.removeIndex(i);
+				grown = true;
+				publish(entry.manager, entry.path);
+			}
+		}
+		
+		if (grown && (residentBytes > budget || budget == 0)) {
+			trim();
+		}
+		else if (grown && bundles.size > 0) {
+			releaseBundles();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void request(AssetEntry entry) {
+		entry.manager.load(entry.path, (Class<Object>)entry.type, (AssetLoaderParameters<Object>)entry.parameters);
+		entry.requested = true;
+		unsizedEntries.add(entry);
+	}
+	
+	/**
+	 * Assigns lanes to the entries straight away when their dependencies are
+	 * known, otherwise resolves them on the dependency thread first
+	 */
+	private void resolveLanes(final Array<AssetEntry> unassigned) {
+		boolean known = true;
+		
+		for (int i = 0; i < unassigned.size && known; ++i) {
+			known = closures.containsKey(unassigned.get(i).path);
+		}
+		
+		if (known) {
+			assignLanes(unassigned);
+			return;
+		}
+		
+		// Bundles are mounted before submitting, dependencies may only live in them
+		resolutions.add(new Resolution(unassigned, dependencyExecutor.submit(new AsyncTask<Array<ObjectSet<String>>>() {
+			@Override
+			public Array<ObjectSet<String>> call() {
+				Array<ObjectSet<String>> result = new Array<ObjectSet<String>>(unassigned.size);
+				
+				for (int i = 0; i < unassigned.size; ++i) {
+					AssetEntry entry = unassigned.get(i);
+					
+					// Copied, the resolver keeps iterating its own cached sets
+					result.add(new ObjectSet<String>(dependencies.get(entry.path, entry.type, entry.parameters)));
+				}
+				
+				return result;
+			}
+		})));
+	}
+	
+	/**
+	 * @return false while dependencies are still being resolved
+	 */
+	private boolean updateResolutions() {
+		for (int i = resolutions.size - 1; i >= 0; --i) {
+			Resolution resolution = resolutions.get(i);
+			
+			if (!resolution.result.isDone()) {
+				continue;
+			}
+			
+			resolutions.removeIndex(i);
+			
+			try {
+				Array<ObjectSet<String>> result = resolution.result.get();
+				
+				for (int j = 0; j < result.size; ++j) {
+					closures.put(resolution.entries.get(j).path, result.get(j));
+				}
+			}
+			catch (GdxRuntimeException e) {
+				logger.error("error resolving dependencies " + e.getMessage());
+			}
+			
+			assignLanes(resolution.entries);
+		}
+		
+		return resolutions.size == 0;
+	}
+	
+	/**
+	 * Entries whose files overlap, directly or through dependencies, are
+	 * merged into one component and every component goes to a single lane,
+	 * the one already owning some of its files if any
+	 */
+	private void assignLanes(Array<AssetEntry> unassigned) {
+		Array<ObjectSet<String>> componentFiles = new Array<ObjectSet<String>>();
+		Array<Array<AssetEntry>> componentEntries = new Array<Array<AssetEntry>>();
+		
+		for (int i = 0; i < unassigned.size; ++i) {
+			AssetEntry entry = unassigned.get(i);
+			
+			// Released again or requested by another group in the meantime
+			if (entry.manager != null || entry.references == 0 || entry.requested) {
+				continue;
+			}
+			
+			ObjectSet<String> closure = getClosure(entry);
+			ObjectSet<String> files = new ObjectSet<String>();
+			Array<AssetEntry> members = new Array<AssetEntry>();
+			files.addAll(closure);
+			members.add(entry);
+			
+			for (int j = componentFiles.size - 1; j >= 0; --j) {
+				if (AssetDependencies.overlap(closure, componentFiles.get(j))) {
+					files.addAll(componentFiles.removeIndex(j));
+					members.addAll(componentEntries.removeIndex(j));
+				}
+			}
+			
+			componentFiles.add(files);
+			componentEntries.add(members);
+		}
+		
+		for (int i = 0; i < componentFiles.size; ++i) {
+			ObjectSet<String> files = componentFiles.get(i);
+			Array<AssetEntry> members = componentEntries.get(i);
+			AssetManager manager = getOwner(files);
+			
+			if (manager == null) {
+				manager = stemOwners.get(getStem(members.first().path));
+			}
+			
+			if (manager == null) {
+				manager = managers.get(nextManager);
+				nextManager = (nextManager + 1) % managers.size;
+			}
+			
+			for (String fileName : files) {
+				if (!owners.containsKey(fileName)) {
+					owners.put(fileName, manager);
+				}
+			}
+			
+			for (int j = 0; j < members.size; ++j) {
+				AssetEntry entry = members.get(j);
+				String stem = getStem(entry.path);
+				
+				if (!stemOwners.containsKey(stem)) {
+					stemOwners.put(stem, manager);
+				}
+				
+				entry.manager = owners.get(entry.path);
+				request(entry);
+			}
+		}
+	}
+	
+	/**
+	 * @return the lane owning some of the files, null if none does
+	 */
+	private AssetManager getOwner(ObjectSet<String> files) {
+		AssetManager owner = null;
+		
+		for (String fileName : files) {
+			AssetManager manager = owners.get(fileName);
+			
+			if (manager == null) {
+				continue;
+			}
+			
+			if (owner == null) {
+				owner = manager;
+			}
+			else if (owner != manager) {
+				logger.info(fileName + " is owned by another lane, it will be loaded twice");
+			}
+		}
+		
+		return owner;
+	}
+	
+	/**
+	 * @return the file and everything it depends on, just the file until resolved
+	 */
+	private ObjectSet<String> getClosure(AssetEntry entry) {
+		ObjectSet<String> closure = closures.get(entry.path);
+		
+		if (closure == null) {
+			closure = new ObjectSet<String>();
+			closure.add(entry.path);
+		}
+		
+		return closure;
+	}
+	
+	/**
+	 * @return the lane owning the file, or the one holding it as a dependency
+	 */
+	private AssetManager getManager(String fileName) {
+		AssetManager manager = owners.get(fileName);
+		
+		if (manager != null && manager.isLoaded(fileName)) {
+			return manager;
+		}
+		
+		for (int i = 0; i < managers.size; ++i) {
+			if (managers.get(i).isLoaded(fileName)) {
+				return managers.get(i);
+			}
+		}
+		
+		return manager != null ? manager : managers.first();
+	}
+	
+	private void notifyLoadedGroups() {
+		boolean released = false;
+		
+		for (int i = loadingGroups.size - 1; i >= 0; --i) {
+			String groupName = loadingGroups.get(i);
+			
+			if (isGroupLoaded(groupName)) {
+				logger.info("group " + groupName + " loaded");
+				loadingGroups.removeIndex(i);
+				setGroupLoaded(groupName, true);
+				released |= releaseHeld(groupName);
+				
+				for (int j = 0; j < listeners.size; ++j) {
+					listeners.get(j).groupLoaded(groupName);
+				}
+			}
+		}
+		
+		if (released) {
+			trim();
+		}
+	}
+	
+	/**
+	 * Holds released entries sharing files with a group still loading until
+	 * it finishes, the lane would otherwise unload the shared dependencies
+	 */
+	private void holdShared(Array<AssetEntry> released) {
+		if (released.size == 0) {
+			return;
+		}
+		
+		for (int i = 0; i < loadingGroups.size; ++i) {
+			String groupName = loadingGroups.get(i);
+			Array<Asset> assets = groups.get(groupName);
+			ObjectSet<String> needed = new ObjectSet<String>();
+			
+			for (int j = 0; j < assets.size; ++j) {
+				needed.addAll(getClosure(entries.get(assets.get(j).path)));
+			}
+			
+			for (int j = 0; j < released.size; ++j) {
+				AssetEntry entry = released.get(j);
+				
+				if (AssetDependencies.overlap(getClosure(entry), needed)) {
+					Array<AssetEntry> held = heldEntries.get(groupName);
+					
+					if (held == null) {
+						held = new Array<AssetEntry>();
+						heldEntries.put(groupName, held);
+					}
+					
+					logger.info("keeping " + entry.path + " until group " + groupName + " is loaded");
+					++entry.holds;
+					held.add(entry);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return true if the group was holding any entry
+	 */
+	private boolean releaseHeld(String groupName) {
+		Array<AssetEntry> held = heldEntries.remove(groupName);
+		
+		if (held == null) {
+			return false;
+		}
+		
+		for (int i = 0; i < held.size; ++i) {
+			--held.get(i).holds;
+		}
+		
+		return true;
+	}
+	
+	private void setGroupLoaded(String groupName, boolean loaded) {
+		Array<AssetHandle<?>> groupHandles = handles.get(groupName);
+		
+		for (int i = 0; i < groupHandles.size; ++i) {
+			groupHandles.get(i).groupLoaded = loaded;
+		}
+	}
+	
+	private static String getStem(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		return dot > fileName.lastIndexOf('/') ? fileName.substring(0, dot) : fileName;
+	}
+	
 	private void loadGroups(String assetFile) {
 		groups = new ObjectMap<String, Array<Asset>>();
+		handles = new ObjectMap<String, Array<AssetHandle<?>>>();
 		
 		logger.info("loading file " + assetFile);
-		
+
 //		try {
 			Json json = new Json();
 			JsonReader reader = new JsonReader();
@@ -143,6 +1041,7 @@ public class Assets implements Disposable, AssetErrorListener {
 				logger.info("registering group " + groupValue.name);
 				
 				Array<Asset> assets = new Array<Asset>();
+				Array<AssetHandle<?>> groupHandles = new Array<AssetHandle<?>>();
 				
 				JsonIterator assetIt = groupValue.iterator();
 				
@@ -151,13 +1050,30 @@ public class Assets implements Disposable, AssetErrorListener {
 					
 					Asset asset = json.fromJson(Asset.class, assetValue.toString());
 					assets.add(asset);
+					
+					if (asset.compressed != null) {
+						textureVariants.put(asset.path, asset.compressed);
+					}
+					groupHandles.add(new AssetHandle<Object>(groupValue.name, getEntry(asset)));
 				}
 				
 				groups.put(groupValue.name, assets);
+				handles.put(groupValue.name, groupHandles);
 			}
 //		}
 //		catch (Exception e) {
 //			logger.error("error loading file " + assetFile + " " + e.getMessage());
 //		}
 	}
+	
+	private static class Resolution {
+		final Array<AssetEntry> entries;
+		final AsyncResult<Array<ObjectSet<String>>> result;
+		
+		Resolution(Array<AssetEntry> entries, AsyncResult<Array<ObjectSet<String>>> result) {
+			this.entries = entries;
+			this.result = result;
+		}
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.siondream.core.assets;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * @class BundleFileHandle
+ *
+ * @brief FileHandle over an AssetBundle entry, or a directory inside a bundle
+ *
+ * Relative handles (child, sibling, parent) go back through the resolver so
+ * loaders following references between files keep reading from bundles.
+ * Entry contents are only touched when the handle is read.
+ */
+public class BundleFileHandle extends FileHandle {
+	
+	private BundleFileHandleResolver resolver;
+	private AssetBundle bundle;
+	
+	/**
+	 * @param bundle bundle holding the entry, null for a directory
+	 */
+	BundleFileHandle(BundleFileHandleResolver resolver, String path, AssetBundle bundle) {
+		super(path, FileType.Internal);
+		this.resolver = resolver;
+		this.bundle = bundle;
+	}
+	
+	@Override
+	public InputStream read() {
+		if (bundle == null) {
+			throw new GdxRuntimeException("cannot read directory " + path());
+		}
+		
+		return bundle.read(path());
+	}
+	
+	@Override
+	public byte[] readBytes() {
+		if (bundle == null) {
+			throw new GdxRuntimeException("cannot read directory " + path());
+		}
+		
+		return bundle.readBytes(path());
+	}
+	
+	/**
+	 * @return the entry contents, sharing the bundle memory when it is mapped
+	 */
+	public ByteBuffer getBuffer() {
+		return bundle != null ? bundle.getEntry(path()).asReadOnlyBuffer() : null;
+	}
+	
+	@Override
+	public long length() {
+		return bundle != null ? bundle.getLength(path()) : 0;
+	}
+	
+	@Override
+	public boolean exists() {
+		return true;
+	}
+	
+	@Override
+	public boolean isDirectory() {
+		return bundle == null;
+	}
+	
+	@Override
+	public FileHandle child(String name) {
+		String path = path();
+		return resolver.resolve(path.length() == 0 ? name : path + "/" + name);
+	}
+	
+	@Override
+	public FileHandle sibling(String name) {
+		return parent().child(name);
+	}
+	
+	@Override
+	public FileHandle parent() {
+		String path = path();
+		int slash = path.lastIndexOf('/');
+		return new BundleFileHandle(resolver, slash == -1 ? "" : path.substring(0, slash), null);
+	}
+}
@@ -0,0 +1,102 @@
+package com.siondream.core.assets;
+
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * @class BundleFileHandleResolver
+ *
+ * @brief Serves files from mounted asset bundles, falling back to another resolver
+ *
+ * Bundles are searched in reverse mounting order. Resolution may happen on
+ * loader threads, mounting and unmounting replace the bundle list instead of
+ * modifying it.
+ */
+public class BundleFileHandleResolver implements FileHandleResolver {
+	
+	private FileHandleResolver fallback;
+	private volatile AssetBundle[] bundles;
+	
+	public BundleFileHandleResolver(FileHandleResolver fallback) {
+		this.fallback = fallback;
+		this.bundles = new AssetBundle[0];
+	}
+	
+	public synchronized void mount(AssetBundle bundle) {
+		Array<AssetBundle> newBundles = new Array<AssetBundle>(bundles);
+		newBundles.add(bundle);
+		bundles = newBundles.toArray(AssetBundle.class);
+	}
+	
+	public synchronized void unmount(AssetBundle bundle) {
+		Array<AssetBundle> newBundles = new Array<AssetBundle>(bundles);
+		newBundles.removeValue(bundle, true);
+		bundles = newBundles.toArray(AssetBundle.class);
+	}
+	
+	public boolean isMounted(String bundleName) {
+		AssetBundle[] current = bundles;
+		
+		for (int i = 0; i < current.length; ++i) {
+			if (current[i].getName().equals(bundleName)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public FileHandle resolve(String fileName) {
+		String path = normalise(fileName);
+		AssetBundle[] current = bundles;
+		
+		for (int i = current.length - 1; i >= 0; --i) {
+			if (current[i].contains(path)) {
+				return new BundleFileHandle(this, path, current[i]);
+			}
+		}
+		
+		return fallback.resolve(fileName);
+	}
+	
+	/**
+	 * Turns backslashes into slashes and collapses "." and ".." segments, the
+	 * packer stores paths the same way
+	 */
+	static String normalise(String fileName) {
+		String path = fileName.replace('\\', '/');
+		
+		if (path.indexOf("./") == -1 && path.indexOf("//") == -1) {
+			return path;
+		}
+		
+		Array<String> segments = new Array<String>();
+		
+		for (String segment : path.split("/")) {
+			if (segment.length() == 0 || segment.equals(".")) {
+				continue;
+			}
+			
+			if (segment.equals("..") && segments.size > 0 && !segments.peek().equals("..")) {
+				segments.pop();
+			}
+			else {
+				segments.add(segment);
+			}
+		}
+		
+		StringBuilder builder = new StringBuilder();
+		
+		for (int i = 0; i < segments.size; ++i) {
+			if (i > 0) {
+				builder.append('/');
+			}
+			
+			builder.append(segments.get(i));
+		}
+		
+		return builder.toString();
+	}
+}
@@ -0,0 +1,67 @@
+package com.siondream.core.assets;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * @class CompressedTextureLoader
+ *
+ * @brief Texture loader picking ETC1 variants when the GPU supports them
+ *
+ * A texture requested as foo.png is read from foo.etc1, or the variant its
+ * Asset descriptor names, when that file exists and the device exposes
+ * GL_OES_compressed_ETC1_RGB8_texture. Variants are gzipped PKM files as
+ * written by ETC1Data.write(), their blocks go to the GPU untouched so there
+ * is no PNG decoding and they take an eighth of the RGBA8888 memory. Any
+ * other case loads the original file as usual.
+ *
+ * Atlas pages and sprite sheets are loaded as Texture dependencies and go
+ * through this loader too. ETC1 has no alpha channel, only opaque textures
+ * should be given a variant.
+ */
+public class CompressedTextureLoader extends TextureLoader {
+	
+	public static final String EXTENSION = ".etc1";
+	
+	private boolean supported;
+	private ObjectMap<String, String> variants;
+	
+	/**
+	 * @param supported whether the GPU accepts ETC1 data, querying it needs a GL context
+	 * @param variants explicit variant per texture path, not modified after loading starts
+	 */
+	public CompressedTextureLoader(FileHandleResolver resolver, boolean supported, ObjectMap<String, String> variants) {
+		super(resolver);
+		this.supported = supported;
+		this.variants = variants;
+	}
+	
+	@Override
+	public void loadAsync(AssetManager manager, String fileName, FileHandle file, TextureParameter parameter) {
+		if (supported && (parameter == null || parameter.textureData == null) && !fileName.endsWith(EXTENSION)) {
+			String variant = variants.get(fileName);
+			
+			if (variant == null) {
+				variant = getDefaultVariant(fileName);
+			}
+			
+			FileHandle variantFile = resolve(variant);
+			
+			if (variantFile.exists()) {
+				super.loadAsync(manager, variant, variantFile, parameter);
+				return;
+			}
+		}
+		
+		super.loadAsync(manager, fileName, file, parameter);
+	}
+	
+	public static String getDefaultVariant(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		String stem = dot > fileName.lastIndexOf('/') ? fileName.substring(0, dot) : fileName;
+		return stem + EXTENSION;
+	}
+}
@@ -10,15 +10,18 @@ import ashley.utils.Pool.Poolable;
 public class PhysicsComponent extends Component implements Poolable {
 	public Body body;
 	public PhysicsData data;
+	public boolean awake;
 	
 	public PhysicsComponent() {
 		body = null;
 		data = null;
+		awake = true;
 	}
 	
 	public PhysicsComponent(PhysicsComponent other) {
 		data = other.data;
 		body = data.createBody(null);
+		awake = true;
 	}
 	
 	@Override
@@ -29,5 +32,6 @@ public class PhysicsComponent extends Component implements Poolable {
 		
 		body = null;
 		data = null;
+		awake = true;
 	}
 }
@@ -1,7 +1,9 @@
 package com.siondream.core.entity.components;
 
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Pool.Poolable;
 import com.esotericsoftware.spine.AnimationState;
+import com.esotericsoftware.spine.AnimationState.TrackEntry;
 import com.esotericsoftware.spine.Skeleton;
 
 import ashley.core.Component;
@@ -17,6 +19,26 @@ public class SpineComponent extends Component implements Poolable {
 	public SpineComponent(SpineComponent other) {
 		state = new AnimationState(other.state.getData());
 		skeleton = new Skeleton(state.getData().getSkeletonData());
+		setAnimations(other);
+	}
+	
+	/**
+	 * Restarts the animations other is playing from the setup pose, dropping any other track
+	 */
+	public void setAnimations(SpineComponent other) {
+		Array<TrackEntry> tracks = other.state.getTracks();
+		
+		state.clearTracks();
+		state.setTimeScale(other.state.getTimeScale());
+		skeleton.setToSetupPose();
+		
+		for (int i = 0; i < tracks.size; ++i) {
+			TrackEntry entry = tracks.get(i);
+			
+			if (entry != null) {
+				state.setAnimation(i, entry.getAnimation(), entry.getLoop());
+			}
+		}
 	}
 	
 	@Override
@@ -9,6 +9,7 @@ public class TransformComponent extends Component implements Poolable {
 	public Vector3 position;
 	public float scale;
 	public float angle;
+	public boolean isStatic;
 	
 	public TransformComponent() {
 		position = new Vector3();
@@ -19,6 +20,7 @@ public class TransformComponent extends Component implements Poolable {
 		position = new Vector3(other.position);
 		scale = other.scale;
 		angle = other.angle;
+		isStatic = other.isStatic;
 	}
 	
 	@Override
@@ -26,5 +28,6 @@ public class TransformComponent extends Component implements Poolable {
 		position.set(0.0f, 0.0f, 0.0f);
 		scale = 1.0f;
 		angle = 0.0f;
+		isStatic = false;
 	}
 }
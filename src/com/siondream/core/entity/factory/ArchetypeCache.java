@@ -0,0 +1,257 @@
+package com.siondream.core.entity.factory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonValue.ValueType;
+import com.badlogic.gdx.utils.StreamUtils;
+
+/**
+ * @class ArchetypeCache
+ *
+ * @brief Binary copy of the parsed archetype files
+ *
+ * Stores the component trees of every archetype so later launches skip the
+ * json parsing. The cache keeps the length and modification time of the
+ * archetype list and every file it names, checking them costs no reads. Any
+ * change makes read() return null and the archetypes are parsed from json
+ * again. Files packaged in an APK or jar report no modification time, only
+ * a change in length is noticed there, so shipped builds should name a new
+ * archetypeCache file on every release. Layout, big endian:
+ *
+ * - int magic "SNAC", int version, list stamp
+ * - int file count, then every archetype file path and its stamp
+ * - per archetype: name, component count, then every component tree
+ *
+ * A stamp is the file length and modification time, both as longs.
+ *
+ * A tree node is its type, its name and then its value or children. Strings
+ * are an int byte length followed by UTF-8, -1 standing for null.
+ */
+class ArchetypeCache {
+	
+	private static final int MAGIC = 0x534e4143;
+	private static final int VERSION = 2;
+	private static final ValueType[] TYPES = ValueType.values();
+	
+	/**
+	 * @class ArchetypeSource
+	 *
+	 * @brief Components of an archetype as read from its file
+	 */
+	static class ArchetypeSource {
+		final String path;
+		final String name;
+		final Array<JsonValue> components;
+		
+		ArchetypeSource(String path, String name, Array<JsonValue> components) {
+			this.path = path;
+			this.name = name;
+			this.components = components;
+		}
+	}
+	
+	/**
+	 * @return cached archetypes, null if the cache is missing or stale
+	 */
+	static Array<ArchetypeSource> read(FileHandle cache, FileHandle list) throws IOException {
+		if (!cache.exists()) {
+			return null;
+		}
+		
+		DataInputStream input = new DataInputStream(new BufferedInputStream(cache.read()));
+		
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !readStamp(input, list)) {
+				return null;
+			}
+			
+			int numFiles = input.readInt();
+			Array<String> paths = new Array<String>(numFiles);
+			
+			for (int i = 0; i < numFiles; ++i) {
+				String path = readString(input);
+				
+				if (!readStamp(input, Gdx.files.internal(path))) {
+					return null;
+				}
+				
+				paths.add(path);
+			}
+			
+			Array<ArchetypeSource> sources = new Array<ArchetypeSource>(numFiles);
+			
+			for (int i = 0; i < numFiles; ++i) {
+				String name = readString(input);
+				int numComponents = input.readInt();
+				Array<JsonValue> components = new Array<JsonValue>(numComponents);
+				
+				for (int j = 0; j < numComponents; ++j) {
+					components.add(readValue(input));
+				}
+				
+				sources.add(new ArchetypeSource(paths.get(i), name, components));
+			}
+			
+			return sources;
+		}
+		finally {
+			StreamUtils.closeQuietly(input);
+		}
+	}
+	
+	static void write(FileHandle cache, FileHandle list, Array<ArchetypeSource> sources) throws IOException {
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(cache.write(false)));
+		
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			writeStamp(output, list);
+			output.writeInt(sources.size);
+			
+			for (int i = 0; i < sources.size; ++i) {
+				String path = sources.get(i).path;
+				writeString(output, path);
+				writeStamp(output, Gdx.files.internal(path));
+			}
+			
+			for (int i = 0; i < sources.size; ++i) {
+				ArchetypeSource source = sources.get(i);
+				writeString(output, source.name);
+				output.writeInt(source.components.size);
+				
+				for (int j = 0; j < source.components.size; ++j) {
+					writeValue(output, source.components.get(j));
+				}
+			}
+		}
+		finally {
+			StreamUtils.closeQuietly(output);
+		}
+	}
+	
+	private static void writeStamp(DataOutputStream output, FileHandle file) throws IOException {
+		output.writeLong(file.length());
+		output.writeLong(file.lastModified());
+	}
+	
+	/**
+	 * @return true if the file still has the stamp stored in the cache
+	 */
+	private static boolean readStamp(DataInputStream input, FileHandle file) throws IOException {
+		long length = input.readLong();
+		long lastModified = input.readLong();
+		
+		// A missing file can never match the stamp it was cached with
+		return file.exists() && file.length() == length && file.lastModified() == lastModified;
+	}
+	
+	private static void writeValue(DataOutputStream output, JsonValue value) throws IOException {
+		output.writeByte(value.type().ordinal());
+		writeString(output, value.name());
+		
+		switch (value.type()) {
+		case object:
+		case array:
+			output.writeInt(value.size);
+			
+			for (JsonValue child = value.child(); child != null; child = child.next()) {
+				writeValue(output, child);
+			}
+			break;
+		case stringValue:
+			writeString(output, value.asString());
+			break;
+		case doubleValue:
+			output.writeDouble(value.asDouble());
+			break;
+		case longValue:
+			output.writeLong(value.asLong());
+			break;
+		case booleanValue:
+			output.writeBoolean(value.asBoolean());
+			break;
+		case nullValue:
+			break;
+		}
+	}
+	
+	private static JsonValue readValue(DataInputStream input) throws IOException {
+		ValueType type = TYPES[input.readByte()];
+		String name = readString(input);
+		JsonValue value;
+		
+		switch (type) {
+		case object:
+		case array:
+			value = new JsonValue(type);
+			int size = input.readInt();
+			JsonValue last = null;
+			
+			for (int i = 0; i < size; ++i) {
+				JsonValue child = readValue(input);
+				
+				if (last == null) {
+					value.child = child;
+				}
+				else {
+					last.next = child;
+					child.prev = last;
+				}
+				
+				last = child;
+			}
+			
+			value.size = size;
+			break;
+		case stringValue:
+			value = new JsonValue(readString(input));
+			break;
+		case doubleValue:
+			value = new JsonValue(input.readDouble());
+			break;
+		case longValue:
+			value = new JsonValue(input.readLong());
+			break;
+		case booleanValue:
+			value = new JsonValue(input.readBoolean());
+			break;
+		default:
+			value = new JsonValue(ValueType.nullValue);
+			break;
+		}
+		
+		value.setName(name);
+		return value;
+	}
+	
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		if (value == null) {
+			output.writeInt(-1);
+			return;
+		}
+		
+		byte[] bytes = value.getBytes("UTF-8");
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+	
+	private static String readString(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		
+		if (length < 0) {
+			return null;
+		}
+		
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+}
@@ -1,6 +1,7 @@
 package com.siondream.core.entity.factory;
 
 import ashley.core.Component;
+import ashley.core.Entity;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
@@ -8,6 +9,9 @@ import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
 import com.esotericsoftware.spine.AnimationState;
@@ -27,11 +31,13 @@ import com.siondream.core.entity.components.SpriteComponent;
 import com.siondream.core.entity.components.StateComponent;
 import com.siondream.core.entity.components.TextureComponent;
 import com.siondream.core.entity.components.TransformComponent;
+import com.siondream.core.entity.factory.EntityFactory.ComponentCloner;
 import com.siondream.core.entity.factory.EntityFactory.ComponentReader;
+import com.siondream.core.entity.factory.EntityFactory.ComponentRecycler;
 import com.siondream.core.physics.PhysicsData;
 
 public class ComponentReaders {
-	public static class ColorComponentReader implements ComponentReader {
+	public static class ColorComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 		private Json json = new Json();
 		
 		@Override
@@ -45,10 +51,24 @@ public class ComponentReaders {
 			component.color = json.fromJson(Color.class, value.asString()); 
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new ColorComponent((ColorComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			((ColorComponent)component).color.set(((ColorComponent)prototype).color);
+		}
 		
 	}
 	
-	public static class FontComponentReader implements ComponentReader {
+	public static class FontComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -61,10 +81,24 @@ public class ComponentReaders {
 			component.font = Env.game.getAssets().get(value.getString("name"), BitmapFont.class);
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new FontComponent((FontComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			((FontComponent)component).font = ((FontComponent)prototype).font;
+		}
 		
 	}
 	
-	public static class MapComponentReader implements ComponentReader {
+	public static class MapComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -77,10 +111,24 @@ public class ComponentReaders {
 			component.map = Env.game.getAssets().get(value.getString("name"), TiledMap.class);
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new MapComponent((MapComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			((MapComponent)component).map = ((MapComponent)prototype).map;
+		}
 		
 	}
 	
-	public static class OverridePhysicsComponentReader implements ComponentReader {
+	public static class OverridePhysicsComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -93,10 +141,27 @@ public class ComponentReaders {
 			component.enable = value.getBoolean("enable", true);
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new OverridePhysicsComponent((OverridePhysicsComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			OverridePhysicsComponent source = (OverridePhysicsComponent)prototype;
+			OverridePhysicsComponent target = (OverridePhysicsComponent)component;
+			target.enable = source.enable;
+			target.autoDisable = source.autoDisable;
+		}
 		
 	}
 	
-	public static class ParticleComponentReader implements ComponentReader {
+	public static class ParticleComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -109,10 +174,28 @@ public class ComponentReaders {
 			component.name = value.getString("name");
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new ParticleComponent((ParticleComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+			// Back to the effect pools, reuse() obtains a fresh one
+			((ParticleComponent)component).dispose();
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			ParticleComponent target = (ParticleComponent)component;
+			target.name = ((ParticleComponent)prototype).name;
+			target.effect = Env.game.getParticlePools().obtain(target.name);
+		}
 		
 	}
 	
-	public static class PhysicsComponentReader implements ComponentReader {
+	public static class PhysicsComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -125,10 +208,46 @@ public class ComponentReaders {
 			component.data = Env.game.getAssets().get(value.getString("name"), PhysicsData.class);
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new PhysicsComponent((PhysicsComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+			// Inactive bodies stay in the world but take no part in the simulation
+			PhysicsComponent physics = (PhysicsComponent)component;
+			physics.body.setActive(false);
+			physics.awake = false;
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			PhysicsComponent target = (PhysicsComponent)component;
+			TransformComponent transform = entity.getComponent(TransformComponent.class);
+			BodyDef bodyDef = target.data.getBodyDef();
+			Body body = target.body;
+			
+			// awake stays false until the next step so the body is not interpolated from its last life
+			if (transform != null) {
+				Vector2 position = body.getTransform().getPosition();
+				position.set(transform.position.x, transform.position.y);
+				body.setTransform(position, transform.angle);
+			}
+			else {
+				body.setTransform(bodyDef.position, bodyDef.angle);
+			}
+			
+			body.setLinearVelocity(bodyDef.linearVelocity);
+			body.setAngularVelocity(bodyDef.angularVelocity);
+			body.setActive(true);
+			body.setAwake(true);
+		}
 		
 	}
 	
-	public static class ShaderComponentReader implements ComponentReader {
+	public static class ShaderComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -141,10 +260,24 @@ public class ComponentReaders {
 			component.shader = Env.game.getShaderManager().get(value.getString("name"));
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new ShaderComponent((ShaderComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			((ShaderComponent)component).shader = ((ShaderComponent)prototype).shader;
+		}
 		
 	}
 	
-	public static class SpineComponentReader implements ComponentReader {
+	public static class SpineComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -156,12 +289,31 @@ public class ComponentReaders {
 			SpineComponent component = new SpineComponent();
 			component.state = new AnimationState(Env.game.getAssets().get(value.getString("name"), AnimationStateData.class));
 			component.skeleton = new Skeleton(component.state.getData().getSkeletonData());
+			
+			if (value.has("animation")) {
+				component.state.setAnimation(0, value.getString("animation"), value.getBoolean("loop", true));
+			}
+			
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new SpineComponent((SpineComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			((SpineComponent)component).setAnimations((SpineComponent)prototype);
+		}
 		
 	}
 	
-	public static class SpriteComponentReader implements ComponentReader {
+	public static class SpriteComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -174,10 +326,28 @@ public class ComponentReaders {
 			component.data = Env.game.getAssets().get(value.getString("name"), SpriteAnimationData.class);
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new SpriteComponent((SpriteComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			SpriteComponent source = (SpriteComponent)prototype;
+			SpriteComponent target = (SpriteComponent)component;
+			target.data = source.data;
+			target.currentAnimation = source.currentAnimation;
+			target.time = source.time;
+		}
 		
 	}
 	
-	public static class StateComponentReader implements ComponentReader {
+	public static class StateComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -190,10 +360,24 @@ public class ComponentReaders {
 			component.id = StateComponent.getID(value.getString("name", "idle"));
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new StateComponent((StateComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			((StateComponent)component).id = ((StateComponent)prototype).id;
+		}
 		
 	}
 	
-	public static class TextureComponentReader implements ComponentReader {
+	public static class TextureComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -213,10 +397,24 @@ public class ComponentReaders {
 			
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new TextureComponent((TextureComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			((TextureComponent)component).region = ((TextureComponent)prototype).region;
+		}
 		
 	}
 	
-	public static class TransformComponentReader implements ComponentReader {
+	public static class TransformComponentReader implements ComponentReader, ComponentCloner, ComponentRecycler {
 
 		@Override
 		public Class<? extends Component> getComponentClass() {
@@ -231,8 +429,28 @@ public class ComponentReaders {
 			component.position.z = value.getFloat("z", 0.0f);
 			component.scale = value.getFloat("scale", 1.0f);
 			component.angle = value.getFloat("angle", 0.0f);
+			component.isStatic = value.getBoolean("static", false);
 			return component;
 		}
+
+		@Override
+		public Component copy(Component component) {
+			return new TransformComponent((TransformComponent)component);
+		}
+
+		@Override
+		public void release(Component component) {
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			TransformComponent source = (TransformComponent)prototype;
+			TransformComponent target = (TransformComponent)component;
+			target.position.set(source.position);
+			target.scale = source.scale;
+			target.angle = source.angle;
+			target.isStatic = source.isStatic;
+		}
 		
 	}
 }
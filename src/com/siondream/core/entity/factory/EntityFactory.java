@@ -3,35 +3,75 @@ package com.siondream.core.entity.factory;
 import java.lang.reflect.Constructor;
 
 import ashley.core.Component;
+import ashley.core.Engine;
 import ashley.core.Entity;
+import ashley.core.EntityListener;
 import ashley.utils.ImmutableArray;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.JsonValue.JsonIterator;
 import com.badlogic.gdx.utils.Logger;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
 import com.siondream.core.Env;
+import com.siondream.core.entity.factory.ArchetypeCache.ArchetypeSource;
 
-public class EntityFactory {
+/**
+ * @class EntityFactory
+ *
+ * @brief Creates entities from archetypes described in json files
+ *
+ * Every archetype is compiled into a SpawnPlan when loaded. Readers that
+ * implement ComponentCloner copy their components directly, others fall back
+ * to the component copy constructor through reflection. Callers spawning
+ * often can keep the plan from getSpawnPlan() and skip the name lookup.
+ *
+ * Registered as an engine listener, entities spawned from pooled plans go
+ * back to their plan when removed from the engine. Do not keep references to
+ * removed entities, they may come back as a different spawn.
+ *
+ * createEntities() spawns a whole batch and initialises it before adding
+ * any entity to the engine. Ashley matches families and notifies listeners
+ * once per entity on insertion and again for every component added
+ * afterwards, setting entities up first keeps it to a single pass each.
+ *
+ * Parsed archetype files are cached in binary form, see ArchetypeCache, and
+ * readers are found by component class name without loading the class.
+ * Without a valid cache archetype files are parsed in parallel, one task per
+ * file. Readers resolve assets, so components are only built afterwards on
+ * the calling thread, in the order the list gives.
+ */
+public class EntityFactory implements EntityListener {
 	
 	private static final String TAG = "EntityFactory";
 	private static final String ARCHETYPES_FILE = "data/entities/entities.json"; 
 	
 	private Logger logger;
-	private ObjectMap<String, Entity> archetypes;
+	private ObjectMap<String, SpawnPlan> archetypes;
 	private ObjectMap<Class<? extends Component>, ComponentReader> readers;
-	private ObjectMap<Class<? extends Component>, Constructor<? extends Component>> constructors;
+	private ObjectMap<String, ComponentReader> readerNames;
+	private ObjectMap<Class<? extends Component>, ComponentCloner> cloners;
+	private IntMap<SpawnPlan> spawned;
+	private Array<Entity> batch;
 	
 	public EntityFactory () {
 		logger = new Logger(TAG, Env.debugLevel);
 		logger.info("initialising");
 		
-		archetypes = new ObjectMap<String, Entity>();
+		archetypes = new ObjectMap<String, SpawnPlan>();
 		readers = new ObjectMap<Class<? extends Component>, ComponentReader>();
-		constructors = new ObjectMap<Class<? extends Component>, Constructor<? extends Component>>();
+		readerNames = new ObjectMap<String, ComponentReader>();
+		cloners = new ObjectMap<Class<? extends Component>, ComponentCloner>();
+		spawned = new IntMap<SpawnPlan>();
+		batch = new Array<Entity>();
 	}
 	
 	public void registerReader(ComponentReader reader) {
@@ -44,96 +84,300 @@ public class EntityFactory {
 			return;
 		}
 		
-		// Check whether or not the component class is copy-constructable
-		try {	
-			Constructor<? extends Component> constructor = c.getConstructor(c);
-			constructors.put(c, constructor);
+		if (reader instanceof ComponentCloner) {
+			cloners.put(c, (ComponentCloner)reader);
 		}
-		catch (NoSuchMethodException e) {
-			logger.error("component does not have a copy constructor " + c.getSimpleName());
-			return;
+		else {
+			// Check whether or not the component class is copy-constructable
+			try {	
+				cloners.put(c, new ConstructorCloner(c.getConstructor(c)));
+			}
+			catch (NoSuchMethodException e) {
+				logger.error("component does not have a copy constructor " + c.getSimpleName());
+				return;
+			}
 		}
 		
 		readers.put(c, reader);
+		readerNames.put(c.getName(), reader);
 	}
 	
 	public void loadArchetypes() {
+		FileHandle list = Gdx.files.internal(ARCHETYPES_FILE);
+		FileHandle cache = Env.archetypeCache.length() > 0 ? Gdx.files.local(Env.archetypeCache) : null;
+		Array<ArchetypeSource> sources = readCache(cache, list);
+		
+		if (sources == null) {
+			sources = new Array<ArchetypeSource>();
+			
+			// Files that failed are left out of the cache, caching without them would go stale
+			if (parseArchetypes(list, sources)) {
+				writeCache(cache, list, sources);
+			}
+		}
+		
+		for (int i = 0; i < sources.size; ++i) {
+			buildArchetype(sources.get(i));
+		}
+	}
+	
+	/**
+	 * @return compiled archetype, null if it does not exist
+	 */
+	public SpawnPlan getSpawnPlan(String name) {
+		return archetypes.get(name);
+	}
+	
+	public Entity createEntity(String name) {
+		SpawnPlan plan = archetypes.get(name);
+		
+		if (plan == null) {
+			logger.error("the archetype name does not exist " + name);
+			return null;
+		}
+		
+		return createEntity(plan);
+	}
+	
+	/**
+	 * Spawns the plan and adds the entity to the engine
+	 */
+	public Entity createEntity(SpawnPlan plan) {
+		if (logger.getLevel() >= Logger.DEBUG) {
+			logger.debug("creating a new entity from archetype " + plan.getName());
+		}
+		
+		Entity newEntity = plan.spawn();
+		
+		if (plan.isPooled()) {
+			spawned.put(newEntity.getIndex(), plan);
+		}
+		
+		Env.game.getEngine().addEntity(newEntity);
+		
+		return newEntity;
+	}
+	
+	public void createEntities(String name, int count, EntityInitializer initializer) {
+		createEntities(name, count, initializer, null);
+	}
+	
+	/**
+	 * @param initializer called for every entity before it is added to the engine, may be null
+	 * @param out receives the created entities if not null
+	 */
+	public void createEntities(String name, int count, EntityInitializer initializer, Array<Entity> out) {
+		SpawnPlan plan = archetypes.get(name);
+		
+		if (plan == null) {
+			logger.error("the archetype name does not exist " + name);
+			return;
+		}
+		
+		createEntities(plan, count, initializer, out);
+	}
+	
+	/**
+	 * Spawns and initialises count entities, then adds them to the engine in one go
+	 */
+	public void createEntities(SpawnPlan plan, int count, EntityInitializer initializer, Array<Entity> out) {
+		if (logger.getLevel() >= Logger.DEBUG) {
+			logger.debug("creating " + count + " entities from archetype " + plan.getName());
+		}
+		
+		// Initializers may spawn batches of their own, this one starts here
+		int start = batch.size;
+		batch.ensureCapacity(count);
+		
+		for (int i = 0; i < count; ++i) {
+			Entity entity = plan.spawn();
+			
+			if (initializer != null) {
+				initializer.initialize(entity, i);
+			}
+			
+			batch.add(entity);
+		}
+		
+		Engine engine = Env.game.getEngine();
+		boolean pooled = plan.isPooled();
+		
+		for (int i = start; i < batch.size; ++i) {
+			Entity entity = batch.get(i);
+			
+			if (pooled) {
+				spawned.put(entity.getIndex(), plan);
+			}
+			
+			engine.addEntity(entity);
+		}
+		
+		if (out != null) {
+			out.addAll(batch, start, batch.size - start);
+		}
+		
+		batch.truncate(start);
+	}
+	
+	/**
+	 * Drops the entities pooled by every archetype
+	 */
+	public void clearPools() {
+		for (SpawnPlan plan : archetypes.values()) {
+			plan.clearPool();
+		}
+	}
+	
+	@Override
+	public void entityAdded(Entity entity) {
+	}
+	
+	@Override
+	public void entityRemoved(Entity entity) {
+		SpawnPlan plan = spawned.remove(entity.getIndex());
+		
+		if (plan != null && !plan.free(entity)) {
+			SpawnPlan.discard(entity);
+		}
+	}
+	
+	private Array<ArchetypeSource> readCache(FileHandle cache, FileHandle list) {
+		if (cache == null) {
+			return null;
+		}
+		
+		try {
+			Array<ArchetypeSource> sources = ArchetypeCache.read(cache, list);
+			
+			if (sources != null) {
+				logger.info("read " + sources.size + " archetypes from " + cache.path());
+			}
+			else {
+				logger.info("archetype cache missing or out of date");
+			}
+			
+			return sources;
+		}
+		catch (Exception e) {
+			logger.error("error reading archetype cache " + cache.path() + " " + e.getMessage());
+			return null;
+		}
+	}
+	
+	private void writeCache(FileHandle cache, FileHandle list, Array<ArchetypeSource> sources) {
+		if (cache == null) {
+			return;
+		}
+		
+		try {
+			ArchetypeCache.write(cache, list, sources);
+			logger.info("wrote archetype cache " + cache.path());
+		}
+		catch (Exception e) {
+			logger.error("error writing archetype cache " + cache.path() + " " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * @return true if the list and every file it names were parsed
+	 */
+	private boolean parseArchetypes(FileHandle list, Array<ArchetypeSource> sources) {
+		Array<String> paths = new Array<String>();
+		
 		try {
 			JsonReader reader = new JsonReader();
-			JsonValue root = reader.parse(Gdx.files.internal(ARCHETYPES_FILE));
+			JsonValue root = reader.parse(list);
 			JsonIterator entitiesIt = root.iterator();
 			
 			while (entitiesIt.hasNext()) {
 				JsonValue entity = entitiesIt.next();
-				loadEntityArchetype(Gdx.files.internal(entity.asString()));
+				paths.add(entity.asString());
 			}
 		}
 		catch (Exception e) {
 			logger.error("failed to process entity list " + ARCHETYPES_FILE);
+			return false;
 		}
-	}
-	
-	public Entity createEntity(String name) {
-		logger.info("creating a new entity from archetype " + name);
 		
-		Entity archetype = archetypes.get(name);
+		int numThreads = Math.min(paths.size, Runtime.getRuntime().availableProcessors());
 		
-		if (archetype == null) {
-			logger.error("the archetype name does not exist " + name);
+		if (numThreads <= 1) {
+			for (int i = 0; i < paths.size; ++i) {
+				addSource(sources, parseArchetype(paths.get(i)));
+			}
+			
+			return sources.size == paths.size;
 		}
 		
-		Entity newEntity = new Entity();
-		ImmutableArray<Component> components = archetype.getComponents();
-		int numComponents = components.getSize();
+		logger.info("parsing " + paths.size + " archetypes on " + numThreads + " threads");
 		
-		for (int i = 0; i < numComponents; ++i) {
-			Component component = components.get(i);
-			Class<? extends Component> componentClass = component.getClass();
-			ComponentReader reader = readers.get(componentClass);
-			Constructor<? extends Component> constructor = constructors.get(componentClass);
-			
-			if (constructor == null || reader == null) {
-				logger.error("component doesn't have either a valid reader or a copy constructor " + componentClass.getSimpleName());
-				continue;
-			}
+		AsyncExecutor executor = new AsyncExecutor(numThreads);
+		Array<AsyncResult<ArchetypeSource>> results = new Array<AsyncResult<ArchetypeSource>>(paths.size);
+		
+		for (int i = 0; i < paths.size; ++i) {
+			final String path = paths.get(i);
 			
-			try {
-				logger.info("adding new component " + componentClass.getSimpleName());
-				newEntity.add(constructor.newInstance(archetype.getComponent(componentClass)));
-			}catch (Exception e) {
-				logger.error("error trying to instantiate component " + componentClass.getSimpleName());				
-			}	
+			results.add(executor.submit(new AsyncTask<ArchetypeSource>() {
+				@Override
+				public ArchetypeSource call() {
+					return parseArchetype(path);
+				}
+			}));
 		}
 		
-		logger.info("adding entity to engine " + name);
-		Env.game.getEngine().addEntity(newEntity);
+		// Collected in list order so archetypes are built deterministically
+		try {
+			for (int i = 0; i < results.size; ++i) {
+				addSource(sources, results.get(i).get());
+			}
+		}
+		finally {
+			executor.dispose();
+		}
 		
-		return newEntity;
+		return sources.size == paths.size;
+	}
+	
+	private static void addSource(Array<ArchetypeSource> sources, ArchetypeSource source) {
+		if (source != null) {
+			sources.add(source);
+		}
 	}
 	
-	private void loadEntityArchetype(FileHandle file) {
+	/**
+	 * Reads the component trees of an archetype file, safe to call from any thread
+	 */
+	private ArchetypeSource parseArchetype(String path) {
+		FileHandle file = Gdx.files.internal(path);
+		
 		logger.info("loading entity archetype " + file.name());
 		
 		try {
 			JsonReader reader = new JsonReader();
 			JsonValue root = reader.parse(file);
+			Array<JsonValue> components = new Array<JsonValue>();
 			
-			Entity entity = new Entity();
+			for (JsonValue componentValue = root.child(); componentValue != null; componentValue = componentValue.next()) {
+				components.add(componentValue);
+			}
 			
-			JsonIterator componentIt = root.iterator();
+			return new ArchetypeSource(path, file.nameWithoutExtension(), components);
+		}
+		catch (Exception e) {
+			logger.error("error reading " + file.name());
+			return null;
+		}
+	}
+	
+	private void buildArchetype(ArchetypeSource source) {
+		try {
+			Entity entity = new Entity();
 			
-			while (componentIt.hasNext()) {
-				JsonValue componentValue = componentIt.next();
+			for (int i = 0; i < source.components.size; ++i) {
+				JsonValue componentValue = source.components.get(i);
 				
 				String name = componentValue.get("class").asString();
-				Class<? extends Component> componentClass = (Class<? extends Component>)Class.forName(name);
-				
-				if (componentClass == null) {
-					logger.error("invalid component class " + name);
-					continue;
-				}
-				
-				ComponentReader componentReader = readers.get(componentClass);
+				ComponentReader componentReader = readerNames.get(name);
 				
 				if (componentReader == null) {
 					logger.error("component reader not found for class " + name);
@@ -148,15 +392,104 @@ public class EntityFactory {
 				}
 			}
 			
-			archetypes.put(file.nameWithoutExtension(), entity);
+			archetypes.put(source.name, compile(source.name, entity));
 		}
 		catch (Exception e) {
-			logger.error("error reading " + file.name());
+			logger.error("error reading " + source.name);
 		}
 	}
 	
+	private SpawnPlan compile(String name, Entity archetype) {
+		ImmutableArray<Component> components = archetype.getComponents();
+		Array<Component> prototypes = new Array<Component>(components.getSize());
+		Array<ComponentCloner> planCloners = new Array<ComponentCloner>(components.getSize());
+		Array<ComponentRecycler> recyclers = new Array<ComponentRecycler>(components.getSize());
+		boolean pooled = true;
+		
+		for (int i = 0; i < components.getSize(); ++i) {
+			Component component = components.get(i);
+			ComponentCloner cloner = cloners.get(component.getClass());
+			
+			if (cloner == null) {
+				logger.error("component doesn't have either a valid reader or a copy constructor " + component.getClass().getSimpleName());
+				continue;
+			}
+			
+			ComponentReader reader = readers.get(component.getClass());
+			
+			if (reader instanceof ComponentRecycler) {
+				recyclers.add((ComponentRecycler)reader);
+			}
+			else {
+				pooled = false;
+			}
+			
+			prototypes.add(component);
+			planCloners.add(cloner);
+		}
+		
+		return new SpawnPlan(name,
+							 prototypes.toArray(Component.class),
+							 planCloners.toArray(ComponentCloner.class),
+							 pooled ? recyclers.toArray(ComponentRecycler.class) : null,
+							 Env.entityPoolMaxCapacity);
+	}
+	
 	public static interface ComponentReader {
 		public Class<? extends Component> getComponentClass();
 		public Component read(JsonValue value);
 	}
+	
+	/**
+	 * Sets up entities spawned in bulk before they reach the engine
+	 */
+	public static interface EntityInitializer {
+		/**
+		 * @param index position of the entity within the batch
+		 */
+		public void initialize(Entity entity, int index);
+	}
+	
+	/**
+	 * Implemented by readers able to copy the components they read without reflection
+	 */
+	public static interface ComponentCloner {
+		public Component copy(Component component);
+	}
+	
+	/**
+	 * Implemented by readers whose components can be reused once their entity
+	 * is removed, archetypes are only pooled if all their components are
+	 */
+	public static interface ComponentRecycler {
+		/**
+		 * Called when the entity holding the component is removed from the engine
+		 */
+		public void release(Component component);
+		
+		/**
+		 * Restores a released component to the state of the prototype
+		 *
+		 * @param entity pooled entity holding the component, its transform is already restored
+		 */
+		public void reuse(Entity entity, Component prototype, Component component);
+	}
+	
+	private static class ConstructorCloner implements ComponentCloner {
+		private Constructor<? extends Component> constructor;
+		
+		public ConstructorCloner(Constructor<? extends Component> constructor) {
+			this.constructor = constructor;
+		}
+		
+		@Override
+		public Component copy(Component component) {
+			try {
+				return constructor.newInstance(component);
+			}
+			catch (Exception e) {
+				throw new GdxRuntimeException("error trying to instantiate component " + component.getClass().getSimpleName(), e);
+			}
+		}
+	}
 }
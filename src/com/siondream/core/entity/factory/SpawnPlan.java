@@ -0,0 +1,189 @@
+package com.siondream.core.entity.factory;
+
+import ashley.core.Component;
+import ashley.core.Entity;
+import ashley.utils.ImmutableArray;
+import ashley.utils.Pool.Poolable;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.siondream.core.entity.components.TransformComponent;
+import com.siondream.core.entity.factory.EntityFactory.ComponentCloner;
+import com.siondream.core.entity.factory.EntityFactory.ComponentRecycler;
+
+/**
+ * @class SpawnPlan
+ *
+ * @brief Archetype compiled into the steps needed to spawn it
+ *
+ * Prototype components and the cloner copying each of them are laid out in
+ * two parallel arrays when the archetype is loaded. spawn() walks them in
+ * order, no reflection, map lookups or logging involved.
+ *
+ * When every component of the archetype has a ComponentRecycler, entities
+ * removed from the engine go back to the plan's pool with their components
+ * still attached. spawn() then reuses them, resetting each component to its
+ * prototype, so steady state spawning does not allocate. Entities whose
+ * components were added or removed after spawning are not pooled, neither
+ * are those freed while the pool already holds maxPoolSize entities. Their
+ * components are discarded instead, releasing the bodies and effects they
+ * hold.
+ *
+ * The TransformComponent of a pooled entity is restored before any other
+ * component so recyclers can read the prototype pose from the entity.
+ */
+public class SpawnPlan {
+	
+	private final String name;
+	private final Component[] prototypes;
+	private final ComponentCloner[] cloners;
+	private final ComponentRecycler[] recyclers;
+	private final Array<Entity> pool;
+	private final int maxPoolSize;
+	private final int transformIndex;
+	
+	/**
+	 * @param recyclers one per prototype, null if the archetype cannot be pooled
+	 * @param maxPoolSize removed entities kept for reuse at most
+	 */
+	SpawnPlan(String name, Component[] prototypes, ComponentCloner[] cloners, ComponentRecycler[] recyclers, int maxPoolSize) {
+		this.name = name;
+		this.prototypes = prototypes;
+		this.cloners = cloners;
+		this.recyclers = recyclers;
+		this.maxPoolSize = maxPoolSize;
+		this.pool = new Array<Entity>(false, Math.min(maxPoolSize, 16));
+		this.transformIndex = indexOf(TransformComponent.class);
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public int getNumComponents() {
+		return prototypes.length;
+	}
+	
+	public boolean isPooled() {
+		return recyclers != null;
+	}
+	
+	/**
+	 * @return number of removed entities waiting to be reused
+	 */
+	public int getPoolSize() {
+		return pool.size;
+	}
+	
+	/**
+	 * @return entity holding a copy of every prototype component, not added to the engine
+	 */
+	public Entity spawn() {
+		if (pool.size > 0) {
+			Entity entity = pool.pop();
+			ImmutableArray<Component> components = entity.getComponents();
+			
+			if (transformIndex != -1) {
+				recyclers[transformIndex].reuse(entity, prototypes[transformIndex], components.get(transformIndex));
+			}
+			
+			for (int i = 0; i < prototypes.length; ++i) {
+				if (i != transformIndex) {
+					recyclers[i].reuse(entity, prototypes[i], components.get(i));
+				}
+			}
+			
+			return entity;
+		}
+		
+		Entity entity = new Entity();
+		
+		for (int i = 0; i < prototypes.length; ++i) {
+			entity.add(cloners[i].copy(prototypes[i]));
+		}
+		
+		return entity;
+	}
+	
+	/**
+	 * Releases the components of a removed entity and keeps it for reuse if
+	 * the pool is not full, the entity is left untouched otherwise
+	 *
+	 * @return false if the entity cannot be pooled
+	 */
+	boolean free(Entity entity) {
+		if (recyclers == null || pool.size >= maxPoolSize || !matches(entity)) {
+			return false;
+		}
+		
+		ImmutableArray<Component> components = entity.getComponents();
+		
+		for (int i = 0; i < prototypes.length; ++i) {
+			recyclers[i].release(components.get(i));
+		}
+		
+		pool.add(entity);
+		return true;
+	}
+	
+	/**
+	 * Drops the pooled entities, components holding resources are reset
+	 */
+	public void clearPool() {
+		for (int i = 0; i < pool.size; ++i) {
+			discard(pool.get(i));
+		}
+		
+		pool.clear();
+	}
+	
+	/**
+	 * Resets or disposes every component of an entity that will not be reused
+	 */
+	static void discard(Entity entity) {
+		ImmutableArray<Component> components = entity.getComponents();
+		
+		for (int i = 0; i < components.getSize(); ++i) {
+			Component component = components.get(i);
+			
+			if (component instanceof Poolable) {
+				((Poolable)component).reset();
+			}
+			else if (component instanceof com.badlogic.gdx.utils.Pool.Poolable) {
+				((com.badlogic.gdx.utils.Pool.Poolable)component).reset();
+			}
+			else if (component instanceof Disposable) {
+				((Disposable)component).dispose();
+			}
+		}
+	}
+	
+	/**
+	 * @return true if the entity still holds exactly the archetype components, in order
+	 */
+	private boolean matches(Entity entity) {
+		ImmutableArray<Component> components = entity.getComponents();
+		
+		if (components.getSize() != prototypes.length) {
+			return false;
+		}
+		
+		for (int i = 0; i < prototypes.length; ++i) {
+			if (components.get(i).getClass() != prototypes[i].getClass()) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private int indexOf(Class<? extends Component> type) {
+		for (int i = 0; i < prototypes.length; ++i) {
+			if (prototypes[i].getClass() == type) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+}
@@ -31,6 +31,12 @@ public class ParticleEffectSystem extends EntitySystem  {
 
 	@Override
 	public void update(float deltaTime) {
+		// Effects are drawn on the render thread, in pipelined mode the game
+		// updates them there while the simulation is idle
+		if (!Env.game.isRenderThread()) {
+			return;
+		}
+		
 		ParticleEffectPools pools = Env.game.getParticlePools();
 		Values<Entity> values = entities.values();
 		
@@ -40,7 +46,9 @@ public class ParticleEffectSystem extends EntitySystem  {
 			particleComponent.effect.update(deltaTime);
 			
 			if (particleComponent.effect.isComplete()) {
+				// Cleared so recycling the entity does not free the effect again
 				pools.free(particleComponent.effect);
+				particleComponent.effect = null;
 				finishedEntities.add(entity);
 			}
 		}
@@ -1,59 +1,320 @@
 package com.siondream.core.entity.systems;
 
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.utils.IntIntMap;
 import com.siondream.core.entity.components.OverridePhysicsComponent;
 import com.siondream.core.entity.components.PhysicsComponent;
 import com.siondream.core.entity.components.TransformComponent;
 
+import ashley.core.Engine;
 import ashley.core.Entity;
+import ashley.core.EntitySystem;
 import ashley.core.Family;
-import ashley.systems.IteratingSystem;
+import ashley.utils.IntMap;
+import ashley.utils.IntMap.Values;
 
-public class PhysicsSystem extends IteratingSystem {
+/**
+ * @class PhysicsSystem
+ *
+ * @brief Keeps transforms in sync with their Box2D bodies
+ *
+ * The game drives this system around the fixed step loop rather than through
+ * Engine.update(): beginStep() pushes overridden transforms into the world
+ * before every step and endStep() reads every awake body back afterwards.
+ * interpolate() runs once per rendered frame and blends the state before and
+ * after the last step using the leftover accumulator time.
+ *
+ * Body states live in two flat float buffers swapped every step, each body is
+ * read with a single JNI call per step and interpolation does not cross JNI.
+ *
+ * Bodies Box2D has put to sleep do not move, their transform is synced once
+ * when they fall asleep and skipped until they wake up again. Kinematic
+ * bodies are always synced as they can be moved without being woken.
+ */
+public class PhysicsSystem extends EntitySystem {
+
+	// Previous x, y, angle followed by current x, y, angle
+	private static final int STATE_SIZE = 6;
+
+	private Family family;
+	private IntMap<Entity> entities;
+
+	private Entity[] stepEntities;
+	private float[] states;
+	private IntIntMap slots;
+	private int numStepEntities;
+
+	private Entity[] lastEntities;
+	private float[] lastStates;
+	private IntIntMap lastSlots;
+	private int numLastEntities;
+
+	private int numSkippedEntities;
 
-	float alpha;
-	
 	public PhysicsSystem() {
-		super(Family.getFamilyFor(PhysicsComponent.class,
-								  TransformComponent.class));
-		
-		alpha = 1.0f;
+		super();
+
+		family = Family.getFamilyFor(PhysicsComponent.class,
+									 TransformComponent.class);
+
+		stepEntities = new Entity[64];
+		states = new float[64 * STATE_SIZE];
+		slots = new IntIntMap(64);
+		lastEntities = new Entity[64];
+		lastStates = new float[64 * STATE_SIZE];
+		lastSlots = new IntIntMap(64);
+		numStepEntities = 0;
+		numLastEntities = 0;
+		numSkippedEntities = 0;
 	}
 
 	@Override
-	public void update(float deltaTime) {
-		super.update(deltaTime);
+	public void addedToEngine(Engine engine) {
+		entities = engine.getEntitiesFor(family);
+	}
+
+	@Override
+	public void removedFromEngine(Engine engine) {
+		entities = null;
+		clear(stepEntities, numStepEntities);
+		clear(lastEntities, numLastEntities);
+		slots.clear();
+		lastSlots.clear();
+		numStepEntities = 0;
+		numLastEntities = 0;
 	}
-	
+
+	/**
+	 * Transforms are synced through the step methods and interpolate(),
+	 * running them again with the frame delta would undo the interpolation
+	 */
 	@Override
-	public void processEntity(Entity entity, float deltaTime) {
-		PhysicsComponent physics = entity.getComponent(PhysicsComponent.class);
-		TransformComponent transform = entity.getComponent(TransformComponent.class);
-		OverridePhysicsComponent override = entity.getComponent(OverridePhysicsComponent.class);
-		
-		Transform bodyTransform = physics.body.getTransform();
-		
-		if (override != null && override.enable) {
-			Vector2 bodyPosition = bodyTransform.getPosition();
+	public void update(float deltaTime) {
+	}
+
+	/**
+	 * Applies transform overrides, call before every world step
+	 */
+	public void beginStep() {
+		if (entities == null) {
+			return;
+		}
+
+		Values<Entity> values = entities.values();
+
+		while (values.hasNext()) {
+			Entity entity = values.next();
+			OverridePhysicsComponent override = entity.getComponent(OverridePhysicsComponent.class);
+
+			if (override == null || !override.enable) {
+				continue;
+			}
+
+			PhysicsComponent physics = entity.getComponent(PhysicsComponent.class);
+			TransformComponent transform = entity.getComponent(TransformComponent.class);
+			Body body = physics.body;
+			Vector2 bodyPosition = body.getTransform().getPosition();
+
 			bodyPosition.set(transform.position.x, transform.position.y);
-			physics.body.setTransform(bodyPosition, transform.angle);
-			
+			body.setTransform(bodyPosition, transform.angle);
+
 			if (override.autoDisable) {
 				override.enable = false;
 			}
+
+			// Interpolation after this step starts from the overridden transform
+			int slot = slots.get(entity.getIndex(), -1);
+
+			if (slot != -1 && stepEntities[slot] == entity) {
+				int state = slot * STATE_SIZE;
+				states[state + 3] = transform.position.x;
+				states[state + 4] = transform.position.y;
+				states[state + 5] = transform.angle;
+			}
+		}
+	}
+
+	/**
+	 * Reads the state of every awake body back, call after every world step
+	 */
+	public void endStep() {
+		if (entities == null) {
+			return;
+		}
+
+		swapBuffers();
+		ensureCapacity(entities.size);
+
+		Values<Entity> values = entities.values();
+		numSkippedEntities = 0;
+
+		while (values.hasNext()) {
+			Entity entity = values.next();
+			PhysicsComponent physics = entity.getComponent(PhysicsComponent.class);
+			OverridePhysicsComponent override = entity.getComponent(OverridePhysicsComponent.class);
+
+			// The transform drives the body, nothing to read back
+			if (override != null && override.enable) {
+				continue;
+			}
+
+			Body body = physics.body;
+
+			if (isSleeping(physics)) {
+				if (physics.awake) {
+					// Last sync until the body wakes up, it stays where the step left it
+					TransformComponent transform = entity.getComponent(TransformComponent.class);
+					Transform bodyTransform = body.getTransform();
+					Vector2 bodyPosition = bodyTransform.getPosition();
+					transform.position.x = bodyPosition.x;
+					transform.position.y = bodyPosition.y;
+					transform.angle = bodyTransform.getRotation();
+					physics.awake = false;
+				}
+
+				++numSkippedEntities;
+				continue;
+			}
+
+			// Bodies waking up or recycled with their entity have nothing to blend from
+			boolean wasAwake = physics.awake;
+			physics.awake = true;
+
+			Transform bodyTransform = body.getTransform();
+			float[] vals = bodyTransform.vals;
+			int slot = numStepEntities++;
+			int state = slot * STATE_SIZE;
+			int lastSlot = lastSlots.get(entity.getIndex(), -1);
+
+			states[state + 3] = vals[Transform.POS_X];
+			states[state + 4] = vals[Transform.POS_Y];
+			states[state + 5] = bodyTransform.getRotation();
+
+			if (wasAwake && lastSlot != -1 && lastEntities[lastSlot] == entity) {
+				System.arraycopy(lastStates, lastSlot * STATE_SIZE + 3, states, state, 3);
+			}
+			else {
+				// Newly synced body, nothing to blend from
+				System.arraycopy(states, state + 3, states, state, 3);
+			}
+
+			stepEntities[slot] = entity;
+			slots.put(entity.getIndex(), slot);
+		}
+	}
+
+	/**
+	 * Moves transforms between their state before and after the last step
+	 *
+	 * @param alpha leftover accumulator time divided by the physics step
+	 */
+	public void interpolate(float alpha) {
+		if (entities == null) {
+			return;
+		}
+
+		for (int i = 0; i < numStepEntities; ++i) {
+			Entity entity = stepEntities[i];
+
+			// Skips entities removed since the last step
+			if (entities.get(entity.getIndex()) != entity) {
+				continue;
+			}
+
+			OverridePhysicsComponent override = entity.getComponent(OverridePhysicsComponent.class);
+
+			if (override != null && override.enable) {
+				continue;
+			}
+
+			TransformComponent transform = entity.getComponent(TransformComponent.class);
+			int state = i * STATE_SIZE;
+
+			float x = states[state];
+			float y = states[state + 1];
+			float angle = states[state + 2];
+			float deltaAngle = states[state + 5] - angle;
+
+			// Rotations are wrapped to [-PI, PI], blend through the shortest arc
+			if (deltaAngle > MathUtils.PI) {
+				deltaAngle -= MathUtils.PI2;
+			}
+			else if (deltaAngle < -MathUtils.PI) {
+				deltaAngle += MathUtils.PI2;
+			}
+
+			transform.position.x = x + (states[state + 3] - x) * alpha;
+			transform.position.y = y + (states[state + 4] - y) * alpha;
+			transform.angle = angle + deltaAngle * alpha;
+		}
+	}
+
+	/**
+	 * @return number of entities whose body was asleep during the last step
+	 */
+	public int getSkippedEntities() {
+		return numSkippedEntities;
+	}
+
+	/**
+	 * @return number of entities read back from their body during the last step
+	 */
+	public int getSyncedEntities() {
+		return numStepEntities;
+	}
+
+	private boolean isSleeping(PhysicsComponent physics) {
+		Body body = physics.body;
+
+		if (body.isAwake()) {
+			return false;
 		}
-		else {
-			Vector2 bodyPosition = bodyTransform.getPosition();
-			transform.position.x = bodyPosition.x * alpha + transform.position.x * (1.0f - alpha);
-			transform.position.y = bodyPosition.y * alpha + transform.position.y * (1.0f - alpha);
-			transform.angle = bodyTransform.getRotation() * alpha + transform.angle * (1.0f - alpha);
+
+		// The body definition avoids a second JNI call for the type
+		BodyType type = physics.data != null ? physics.data.getBodyDef().type : body.getType();
+		return type != BodyType.KinematicBody;
+	}
+
+	/**
+	 * The buffers filled by the previous step become the last ones, the
+	 * others are emptied for the coming readback
+	 */
+	private void swapBuffers() {
+		Entity[] entitiesTmp = lastEntities;
+		lastEntities = stepEntities;
+		stepEntities = entitiesTmp;
+
+		float[] statesTmp = lastStates;
+		lastStates = states;
+		states = statesTmp;
+
+		IntIntMap slotsTmp = lastSlots;
+		lastSlots = slots;
+		slots = slotsTmp;
+
+		clear(stepEntities, numLastEntities);
+		slots.clear();
+		numLastEntities = numStepEntities;
+		numStepEntities = 0;
+	}
+
+	private void ensureCapacity(int size) {
+		if (size <= stepEntities.length) {
+			return;
 		}
+
+		int capacity = Math.max(size, stepEntities.length * 2);
+		stepEntities = new Entity[capacity];
+		states = new float[capacity * STATE_SIZE];
 	}
 
-	public void interpolate(float deltaTime, float alpha) {
-		this.alpha = alpha;
-		super.update(deltaTime);
-		alpha = 1.0f;
+	private static void clear(Entity[] array, int size) {
+		for (int i = 0; i < size; ++i) {
+			array[i] = null;
+		}
 	}
 }
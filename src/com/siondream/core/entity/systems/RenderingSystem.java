@@ -6,22 +6,26 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.BitmapFont.TextBounds;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.maps.tiled.TiledMap;
-import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectMap.Entries;
+import com.badlogic.gdx.utils.ObjectMap.Entry;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import com.esotericsoftware.spine.SkeletonRenderer;
 import com.siondream.core.Env;
@@ -31,15 +35,23 @@ import com.siondream.core.entity.components.ParticleComponent;
 import com.siondream.core.entity.components.SpineComponent;
 import com.siondream.core.entity.components.TextureComponent;
 import com.siondream.core.entity.components.TransformComponent;
+import com.siondream.core.rendering.MapCache;
+import com.siondream.core.rendering.ParticleCompositor;
+import com.siondream.core.rendering.RenderQueue;
+import com.siondream.core.rendering.RenderQueue.RenderItem;
+import com.siondream.core.rendering.SpatialGrid;
 
 import ashley.core.Engine;
 import ashley.core.Entity;
+import ashley.core.EntityListener;
 import ashley.core.EntitySystem;
 import ashley.core.Family;
+import ashley.signals.Listener;
+import ashley.signals.Signal;
 import ashley.utils.IntMap;
 import ashley.utils.IntMap.Values;
 
-public class RenderingSystem extends EntitySystem implements Disposable {
+public class RenderingSystem extends EntitySystem implements Disposable, EntityListener {
 
 	protected SpriteBatch batch;
 	protected OrthographicCamera camera;
@@ -49,16 +61,31 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 	protected ShapeRenderer shapeRenderer;
 	protected IntMap<Entity> mapEntities;
 	
+	private boolean pipelined;
+	private IntMap<Entity> allEntities;
 	private IntMap<Entity> worldEntities;
 	private IntMap<Entity> particleEntities;
 	private IntMap<Entity> spineAnimatedEntities;
 	private Array<Entity> sortedEntities;
 	private DepthSorter sorter;
+	private RenderQueue renderQueue;
+	private IntMap<RenderItem> renderItems;
+	private Pool<RenderItem> renderItemPool;
+	private Listener<Entity> componentsChanged;
+	private ObjectSet<Entity> pendingEntities;
+	private ObjectSet<Entity> removedEntities;
+	private Array<RenderItem> spineItems;
+	private Array<ParticleEffect> visibleEffects;
+	private Array<Color> visibleColors;
+	private Array<Color> particleColors;
+	private TiledMap visibleMap;
+	private int sleepingBodies;
+	private int physicsBodies;
+	private SpatialGrid grid;
+	private boolean gridActive;
 	private Box2DDebugRenderer box2DRenderer;
-	private TiledMap map;
-	private OrthogonalTiledMapRenderer mapRenderer;
-	private FrameBuffer particleFrameBuffer;
-	private TextureRegion particleRegion;
+	private ObjectMap<TiledMap, MapCache> mapCaches;
+	private ParticleCompositor particleCompositor;
 	private SkeletonRenderer skeletonRenderer;
 	
 	private BitmapFont debugFont;
@@ -66,16 +93,50 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 	private int previousWidth;
 	private int previousHeight;
 	
+	// Per frame statistics for the world batch
+	private int firstRenderCall;
+	private int renderCalls;
+	private int spritesDrawn;
+	private int textureSwitches;
+	private int shaderSwitches;
+	
 	public RenderingSystem() {
 		super();
 		
+		this.pipelined = Env.game.isPipelined();
 		this.sortedEntities = new Array<Entity>(100);
+		this.mapCaches = new ObjectMap<TiledMap, MapCache>();
 		this.batch = new SpriteBatch();
 		this.camera = Env.game.getCamera();
 		this.viewport = Env.game.getViewport();
 		this.uiCamera = Env.game.getUICamera();
 		this.uiViewport = Env.game.getUIViewport();
 		this.sorter = new DepthSorter();
+		this.renderQueue = new RenderQueue();
+		this.renderItems = new IntMap<RenderItem>();
+		this.renderItemPool = new Pool<RenderItem>() {
+			@Override
+			protected RenderItem newObject() {
+				return new RenderItem();
+			}
+		};
+		this.componentsChanged = new Listener<Entity>() {
+			@Override
+			public void receive(Signal<Entity> signal, Entity entity) {
+				invalidate(entity);
+			}
+		};
+		this.pendingEntities = new ObjectSet<Entity>();
+		this.removedEntities = new ObjectSet<Entity>();
+		this.spineItems = new Array<RenderItem>();
+		this.visibleEffects = new Array<ParticleEffect>();
+		this.visibleColors = new Array<Color>();
+		this.particleColors = new Array<Color>();
+		this.visibleMap = null;
+		this.sleepingBodies = 0;
+		this.physicsBodies = 0;
+		this.grid = Env.spatialGrid ? new SpatialGrid(Env.spatialGridCellSize) : null;
+		this.gridActive = false;
 		this.shapeRenderer = new ShapeRenderer();
 		this.box2DRenderer = new Box2DDebugRenderer(Env.drawBodies,
 													Env.drawJoints,
@@ -84,9 +145,7 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 													Env.drawVelocities,
 													Env.drawContacts);
 		
-		this.particleFrameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, Gdx.graphics.getWidth(), Gdx.graphics.getHeight(), false);
-		this.particleRegion = new TextureRegion(particleFrameBuffer.getColorBufferTexture());
-		this.particleRegion.flip(false, true);
+		this.particleCompositor = new ParticleCompositor(Env.particleBufferScale);
 		
 		this.skeletonRenderer = new SkeletonRenderer();
 		
@@ -98,14 +157,143 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 	@Override
 	public void addedToEngine(Engine engine) {
 		super.addedToEngine(engine);
+		allEntities = engine.getEntitiesFor(Family.getFamilyFor());
 		worldEntities = engine.getEntitiesFor(Family.getFamilyFor(TextureComponent.class, TransformComponent.class));
 		particleEntities = engine.getEntitiesFor(Family.getFamilyFor(ParticleComponent.class));
 		mapEntities = engine.getEntitiesFor(Family.getFamilyFor(MapComponent.class));
 		spineAnimatedEntities = engine.getEntitiesFor(Family.getFamilyFor(SpineComponent.class));
+		engine.addEntityListener(this);
+		
+		Values<Entity> values = allEntities.values();
+		
+		while (values.hasNext()) {
+			entityAdded(values.next());
+		}
+	}
+	
+	@Override
+	public void removedFromEngine(Engine engine) {
+		super.removedFromEngine(engine);
+		engine.removeEntityListener(this);
+		
+		Values<Entity> values = allEntities.values();
+		
+		while (values.hasNext()) {
+			Entity entity = values.next();
+			entity.componentAdded.remove(componentsChanged);
+			entity.componentRemoved.remove(componentsChanged);
+		}
+		
+		clearRenderItems();
+	}
+	
+	// Entity events may come from the simulation thread in pipelined mode, they
+	// are queued and applied by snapshot() on the render thread
+	
+	@Override
+	public void entityAdded(Entity entity) {
+		entity.componentAdded.add(componentsChanged);
+		entity.componentRemoved.add(componentsChanged);
+		
+		synchronized (pendingEntities) {
+			removedEntities.remove(entity);
+			pendingEntities.add(entity);
+		}
+	}
+	
+	@Override
+	public void entityRemoved(Entity entity) {
+		entity.componentAdded.remove(componentsChanged);
+		entity.componentRemoved.remove(componentsChanged);
+		
+		synchronized (pendingEntities) {
+			pendingEntities.remove(entity);
+			removedEntities.add(entity);
+		}
+	}
+	
+	/**
+	 * Refreshes the cached render data of an entity, call it after moving an
+	 * entity whose transform is flagged as static
+	 */
+	public void invalidate(Entity entity) {
+		synchronized (pendingEntities) {
+			pendingEntities.add(entity);
+		}
+	}
+	
+	/**
+	 * Captures the state to be drawn by the next update(). In pipelined mode it
+	 * is called by the game on the render thread while the simulation is idle,
+	 * otherwise update() calls it itself.
+	 */
+	public void snapshot() {
+		updateGridState();
+		
+		synchronized (pendingEntities) {
+			for (Entity entity : removedEntities) {
+				releaseRenderItem(entity);
+			}
+			
+			for (Entity entity : pendingEntities) {
+				syncRenderItem(entity);
+			}
+			
+			removedEntities.clear();
+			pendingEntities.clear();
+		}
+		
+		if (pipelined) {
+			Values<RenderItem> items = renderItems.values();
+			
+			while (items.hasNext()) {
+				items.next().copySnapshot();
+			}
+		}
+		
+		// Effects and tints are captured so drawing does not read live components
+		visibleEffects.clear();
+		visibleColors.clear();
+		Values<Entity> values = particleEntities.values();
+		
+		while (values.hasNext()) {
+			Entity entity = values.next();
+			ParticleComponent particle = entity.getComponent(ParticleComponent.class);
+			ColorComponent color = entity.getComponent(ColorComponent.class);
+			
+			if (particle.effect == null) {
+				continue;
+			}
+			
+			visibleEffects.add(particle.effect);
+			visibleColors.add(color != null ? copyParticleColor(visibleColors.size, color.color) : null);
+		}
+		
+		visibleMap = mapEntities.size > 0 ? mapEntities.values().next().getComponent(MapComponent.class).map : null;
+		
+		// Counters the simulation writes, read by debugDrawUI()
+		PhysicsSystem physics = Env.game.getEngine().getSystem(PhysicsSystem.class);
+		sleepingBodies = physics != null ? physics.getSkippedEntities() : 0;
+		physicsBodies = physics != null ? physics.getSkippedEntities() + physics.getSyncedEntities() : 0;
+		
+		if (mapCaches.size > 0) {
+			evictUnusedMaps();
+		}
 	}
 
 	@Override
 	public void update(float deltaTime) {
+		// Drawing only happens on the render thread, see SionGame.isPipelined()
+		if (!Env.game.isRenderThread()) {
+			return;
+		}
+		
+		if (!pipelined) {
+			snapshot();
+		}
+		
+		Color background = Env.backgroundColor;
+		Gdx.gl.glClearColor(background.r, background.g, background.b, background.a);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 		
 		int width = Gdx.graphics.getWidth();
@@ -113,14 +301,26 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 		
 		viewport.update(width, height);
 		
+		firstRenderCall = batch.totalRenderCalls;
+		spritesDrawn = 0;
+		textureSwitches = 0;
+		shaderSwitches = 0;
+		
 		renderMap();
 		
 		batch.begin();
-		renderWorldEntities();
+		if (Env.renderQueue || pipelined) {
+			renderQueuedEntities();
+		}
+		else {
+			renderWorldEntities();
+		}
 		batch.end();
 		
 		renderParticles();
 		
+		renderCalls = batch.totalRenderCalls - firstRenderCall;
+		
 		uiViewport.update(width, height);
 		uiCamera.position.set(uiViewport.getWorldWidth() * 0.5f, uiViewport.getWorldHeight() * 0.5f, 0.0f);
 		Env.game.getStage().draw();
@@ -140,15 +340,112 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 	
 	@Override
 	public void dispose() {
-		if (mapRenderer != null) {
-			mapRenderer.dispose();
-			mapRenderer = null;
-		}
+		clearMapCaches();
 		
 		batch.dispose();
 		shapeRenderer.dispose();
 		box2DRenderer.dispose();
-//		particleFrameBuffer.dispose();
+		particleCompositor.dispose();
+		clearRenderItems();
+	}
+	
+	protected void renderQueuedEntities() {
+		if (grid != null) {
+			float halfWidth = camera.viewportWidth * camera.zoom * 0.5f;
+			float halfHeight = camera.viewportHeight * camera.zoom * 0.5f;
+			
+			grid.update();
+			grid.query(camera.position.x - halfWidth,
+					   camera.position.y - halfHeight,
+					   camera.position.x + halfWidth,
+					   camera.position.y + halfHeight,
+					   renderQueue);
+			
+			for (int i = 0; i < spineItems.size; ++i) {
+				renderQueue.add(spineItems.get(i));
+			}
+		}
+		else {
+			Values<RenderItem> items = renderItems.values();
+			
+			while (items.hasNext()) {
+				RenderItem item = items.next();
+				
+				if (item.texture == null || isInFustrum(item.texture, item.transform)) {
+					renderQueue.add(item);
+				}
+			}
+		}
+		
+		renderQueue.setDepthBand(Env.batchByTexture ? Env.depthBandSize : 0.0f);
+		renderQueue.sort();
+		batch.setProjectionMatrix(camera.combined);
+		
+		int numItems = renderQueue.size();
+		Texture lastTexture = null;
+		ShaderProgram lastShader = null;
+		
+		for (int i = 0; i < numItems; ++i) {
+			RenderItem item = renderQueue.get(i);
+			ShaderProgram shader = item.getShader();
+			
+			if (shader != lastShader) {
+				batch.setShader(shader);
+				lastShader = shader;
+				++shaderSwitches;
+			}
+			
+			if (item.texture != null) {
+				Texture texture = item.texture.region.getTexture();
+				
+				if (texture != lastTexture) {
+					lastTexture = texture;
+					++textureSwitches;
+				}
+				
+				drawTexture(item.texture, item.transform);
+			}
+			else {
+				skeletonRenderer.draw(batch, item.spine.skeleton);
+				lastTexture = null;
+			}
+			
+			++spritesDrawn;
+		}
+		
+		if (lastShader != null) {
+			batch.setShader(null);
+		}
+		
+		renderQueue.clear();
+	}
+	
+	/**
+	 * @return number of SpriteBatch flushes issued by this system last frame
+	 */
+	public int getRenderCalls() {
+		return renderCalls;
+	}
+	
+	/**
+	 * @return number of queued sprites and skeletons drawn last frame
+	 */
+	public int getSpritesDrawn() {
+		return spritesDrawn;
+	}
+	
+	/**
+	 * @return number of times consecutive queued sprites changed texture last frame
+	 */
+	public int getTextureSwitches() {
+		return textureSwitches;
+	}
+	
+	/**
+	 * @return number of shader changes while drawing the queue last frame
+	 */
+	public int getShaderSwitches() {
+		return shaderSwitches;
 	}
 	
 	protected void renderWorldEntities() {
@@ -179,23 +476,7 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 			if (entity.hasComponent(TextureComponent.class)) {
 				TextureComponent texture = entity.getComponent(TextureComponent.class);
 				TransformComponent transform = entity.getComponent(TransformComponent.class);
-			
-				float scale = transform.scale * Env.pixelsToMetres;
-				float width = texture.region.getRegionWidth();
-				float height = texture.region.getRegionHeight();
-				float originX = width * 0.5f;
-				float originY = height * 0.5f;
-				
-				batch.draw(texture.region,
-						   transform.position.x - originX,
-						   transform.position.y - originY,
-						   originX,
-						   originY,
-						   width,
-						   height,
-						   scale,
-						   scale,
-						   MathUtils.radiansToDegrees * transform.angle);
+				drawTexture(texture, transform);
 			}
 			else {
 				SpineComponent animation = entity.getComponent(SpineComponent.class);
@@ -206,31 +487,92 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 		sortedEntities.clear();
 	}
 	
+	protected void drawTexture(TextureComponent texture, TransformComponent transform) {
+		float scale = transform.scale * Env.pixelsToMetres;
+		float width = texture.region.getRegionWidth();
+		float height = texture.region.getRegionHeight();
+		float originX = width * 0.5f;
+		float originY = height * 0.5f;
+		
+		batch.draw(texture.region,
+				   transform.position.x - originX,
+				   transform.position.y - originY,
+				   originX,
+				   originY,
+				   width,
+				   height,
+				   scale,
+				   scale,
+				   MathUtils.radiansToDegrees * transform.angle);
+	}
+	
 	protected void renderMap() {
-		// If there are no map entities, dispose the renderer
-		if (mapEntities.size == 0) {
-			if (mapRenderer != null) {
-				mapRenderer.dispose();
-				mapRenderer = null;
+		if (visibleMap != null) {
+			MapCache mapCache = mapCaches.get(visibleMap);
+			
+			// Renderers are kept while an entity still references the map
+			if (mapCache == null) {
+				mapCache = new MapCache(visibleMap, Env.pixelsToMetres, batch, Env.bakeStaticMapLayers);
+				mapCaches.put(visibleMap, mapCache);
 			}
+			
+			mapCache.render(camera);
 		}
-		else {
-			Entity mapEntity = mapEntities.values().next();
-			MapComponent mapComponent = mapEntity.getComponent(MapComponent.class);
+	}
+	
+	/**
+	 * Releases the cached renderer of a map, call it before unloading the map asset
+	 */
+	public void evictMap(TiledMap map) {
+		MapCache mapCache = mapCaches.remove(map);
+		
+		if (mapCache != null) {
+			mapCache.dispose();
+		}
+	}
+	
+	/**
+	 * Releases the cached renderers of maps no entity references anymore
+	 */
+	private void evictUnusedMaps() {
+		Entries<TiledMap, MapCache> entries = mapCaches.entries();
+		
+		while (entries.hasNext()) {
+			Entry<TiledMap, MapCache> entry = entries.next();
 			
-			if (map != mapComponent.map) {
-				if (mapRenderer != null) {
-					mapRenderer.dispose();
-				}
-				
-				map = mapComponent.map;
-				mapRenderer = new OrthogonalTiledMapRenderer(map, Env.pixelsToMetres);
+			if (!isMapInUse(entry.key)) {
+				entry.value.dispose();
+				entries.remove();
+			}
+		}
+	}
+	
+	private boolean isMapInUse(TiledMap map) {
+		Values<Entity> values = mapEntities.values();
+		
+		while (values.hasNext()) {
+			if (values.next().getComponent(MapComponent.class).map == map) {
+				return true;
 			}
-			
-			// Render
-			mapRenderer.setView(camera);
-			mapRenderer.render();
 		}
+		
+		return false;
+	}
+	
+	/**
+	 * Drops the batching ids of every texture and shader drawn so far, call it
+	 * after unloading assets so the queue does not keep them reachable
+	 */
+	public void resetRenderIDs() {
+		renderQueue.resetIDs();
+	}
+	
+	public void clearMapCaches() {
+		for (MapCache mapCache : mapCaches.values()) {
+			mapCache.dispose();
+		}
+		
+		mapCaches.clear();
 	}
 	
 	protected void renderUI() {
@@ -238,33 +580,42 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 	}
 	
 	protected void renderParticles() {
-		particleFrameBuffer.begin();
+		// Nothing is emitting, skip the offscreen pass altogether
+		if (visibleEffects.size == 0) {
+			return;
+		}
+		
+		particleCompositor.setScale(Env.particleBufferScale);
+		particleCompositor.resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+		particleCompositor.begin();
+		batch.setProjectionMatrix(camera.combined);
 		batch.begin();
 		
 		Color initialColor = batch.getColor();
 		
-		Values<Entity> values = particleEntities.values();
-		
-		while (values.hasNext()) {
-			Entity entity = values.next();
-			ParticleComponent particle = entity.getComponent(ParticleComponent.class);
-			ColorComponent color = entity.getComponent(ColorComponent.class);
+		for (int i = 0; i < visibleEffects.size; ++i) {
+			Color color = visibleColors.get(i);
 			
 			if (color != null) {
-				batch.setColor(color.color);
+				batch.setColor(color);
 			}
 			
-			particle.effect.draw(batch);
+			visibleEffects.get(i).draw(batch);
 			
 			batch.setColor(initialColor);
 		}
 		
 		batch.end();
-		particleFrameBuffer.end();
+		particleCompositor.end();
+		particleCompositor.composite(batch);
+	}
+	
+	private Color copyParticleColor(int index, Color color) {
+		while (particleColors.size <= index) {
+			particleColors.add(new Color());
+		}
 		
-		batch.begin();
-		batch.draw(particleRegion, 0.0f, 0.0f);
-		batch.end();
+		return particleColors.get(index).set(color);
 	}
 	
 	protected void debugDrawWorld() {
@@ -304,6 +655,9 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 			box2DRenderer.setDrawInactiveBodies(Env.drawInactiveBodies);
 			box2DRenderer.setDrawJoints(Env.drawJoints);
 			box2DRenderer.setDrawVelocities(Env.drawVelocities);
+			
+			// The world must not be stepping while its bodies are read
+			Env.game.waitForSimulation();
 			box2DRenderer.render(Env.game.getWorld(), camera.combined);
 		}
 	}
@@ -320,27 +674,138 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 				batch.end();
 			}
 			
+			if (Env.drawRenderStats) {
+				String statsText = String.format("%d sprites %d calls %d textures %d shaders %d/%d bodies asleep",
+												 spritesDrawn,
+												 renderCalls,
+												 textureSwitches,
+												 shaderSwitches,
+												 sleepingBodies,
+												 physicsBodies);
+				batch.setProjectionMatrix(uiCamera.combined);
+				batch.begin();
+				debugFont.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+				debugFont.draw(batch, statsText, 20.0f, 20.0f);
+				batch.end();
+			}
+			
 			Table.drawDebug(Env.game.getStage());
 		}
 	}
 	
+	private void syncRenderItem(Entity entity) {
+		boolean textured = entity.hasComponent(TextureComponent.class) && entity.hasComponent(TransformComponent.class);
+		
+		if (!textured && !entity.hasComponent(SpineComponent.class)) {
+			releaseRenderItem(entity);
+			return;
+		}
+		
+		RenderItem item = renderItems.get(entity.getIndex());
+		
+		if (item == null) {
+			item = renderItemPool.obtain();
+			renderItems.put(entity.getIndex(), item);
+		}
+		else {
+			if (grid != null) {
+				grid.remove(item);
+			}
+			
+			spineItems.removeValue(item, true);
+		}
+		
+		item.set(entity, pipelined);
+		
+		if (!textured) {
+			spineItems.add(item);
+		}
+		else if (gridActive) {
+			grid.add(item);
+		}
+	}
+	
+	/**
+	 * The grid is only kept up to date while the render queue reads it,
+	 * toggling the queue at runtime rebuilds or drops it
+	 */
+	private void updateGridState() {
+		boolean active = grid != null && (Env.renderQueue || pipelined);
+		
+		if (active == gridActive) {
+			return;
+		}
+		
+		gridActive = active;
+		
+		if (!active) {
+			if (grid != null) {
+				grid.clear();
+			}
+			
+			return;
+		}
+		
+		Values<RenderItem> items = renderItems.values();
+		
+		while (items.hasNext()) {
+			RenderItem item = items.next();
+			
+			if (item.sourceTexture != null && item.sourceTransform != null) {
+				grid.add(item);
+			}
+		}
+	}
+	
+	private void releaseRenderItem(Entity entity) {
+		RenderItem item = renderItems.remove(entity.getIndex());
+		
+		if (item != null) {
+			if (grid != null) {
+				grid.remove(item);
+			}
+			
+			spineItems.removeValue(item, true);
+			renderItemPool.free(item);
+		}
+	}
+	
+	private void clearRenderItems() {
+		if (grid != null) {
+			grid.clear();
+		}
+		
+		Values<RenderItem> values = renderItems.values();
+		
+		while (values.hasNext()) {
+			renderItemPool.free(values.next());
+		}
+		
+		renderItems.clear();
+		spineItems.clear();
+		
+		synchronized (pendingEntities) {
+			pendingEntities.clear();
+			removedEntities.clear();
+		}
+	}
+	
 	private boolean isInFustrum(TextureComponent texture, TransformComponent transform) {
 		if (camera == null) {
 			return false;
 		}
 		
+		// Same bounds and view rectangle as the spatial grid, see RenderItem.updateBounds()
 		Vector3 cameraPos = camera.position;
 		Vector3 position = transform.position;
 		float width = texture.region.getRegionWidth();
 		float height = texture.region.getRegionHeight();
-		float originX = width * 0.5f;
-		float originY = height * 0.5f;
-		float scale = transform.scale;
-		float halfWidth = camera.viewportWidth * 0.5f;
-		float halfHeight = camera.viewportHeight * 0.5f;
+		float radius = 0.5f * (float)Math.sqrt(width * width + height * height) * transform.scale * Env.pixelsToMetres;
+		float halfWidth = camera.viewportWidth * camera.zoom * 0.5f;
+		float halfHeight = camera.viewportHeight * camera.zoom * 0.5f;
 
-		if (position.x + width * scale - originX < cameraPos.x - halfWidth || position.x - originX > cameraPos.x + halfWidth) return false;
-		if (position.y + height * scale - originY < cameraPos.y - halfHeight || position.y - originY > cameraPos.y + halfHeight) return false;
+		if (position.x + radius < cameraPos.x - halfWidth || position.x - radius > cameraPos.x + halfWidth) return false;
+		if (position.y + radius < cameraPos.y - halfHeight || position.y - radius > cameraPos.y + halfHeight) return false;
 		
 		return true;
 	}
@@ -355,7 +820,7 @@ public class RenderingSystem extends EntitySystem implements Disposable {
 			if (t1 == null) return -1;
 			if (t2 == null) return 1;
 			
-			return (int)(t2.position.z - t1.position.z);
+			return Float.compare(t2.position.z, t1.position.z);
 		}
 	}
 }
@@ -1,5 +1,6 @@
 package com.siondream.core.entity.systems;
 
+import com.siondream.core.Env;
 import com.siondream.core.entity.components.SpineComponent;
 import com.siondream.core.entity.components.TransformComponent;
 
@@ -11,6 +12,15 @@ public class SpineAnimationSystem extends IteratingSystem {
 	public SpineAnimationSystem() {
 		super(Family.getFamilyFor(SpineComponent.class));
 	}
+	
+	@Override
+	public void update(float deltaTime) {
+		// Skeletons are drawn on the render thread, in pipelined mode the game
+		// updates them there while the simulation is idle
+		if (Env.game.isRenderThread()) {
+			super.update(deltaTime);
+		}
+	}
 
 	@Override
 	public void processEntity(Entity entity, float deltaTime) {
@@ -19,7 +19,7 @@ public class CategoryBitsManager {
 		nextCategory = 0;
 	}
 	
-	public short getCategoryBits(String name) {
+	public synchronized short getCategoryBits(String name) {
 		if (name.length() == 0) {
 			return 0;
 		}
@@ -43,7 +43,7 @@ public class CategoryBitsManager {
 		return category;
 	}
 	
-	public String getCategoryName(short category) {
+	public synchronized String getCategoryName(short category) {
 		if (category == 0) {
 			return "";
 		}
@@ -5,91 +5,189 @@ import com.badlogic.gdx.physics.box2d.ContactImpulse;
 import com.badlogic.gdx.physics.box2d.ContactListener;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.Manifold;
-import com.badlogic.gdx.utils.ObjectMap;
 
+/**
+ * @class CollisionHandler
+ *
+ * @brief Dispatches Box2D contact callbacks to listeners registered per category pair
+ *
+ * Listeners are stored in a flat NUM_CATEGORIES x NUM_CATEGORIES table indexed
+ * by category bit position. Several listeners can share a pair and fixtures may
+ * carry several category bits, every listener matching any pair of bits is
+ * notified once per callback. Dispatching does not allocate.
+ */
 public class CollisionHandler implements ContactListener {
 
-	private ObjectMap<Short, ObjectMap<Short, ContactListener>> listeners;
-	
+	public static final int NUM_CATEGORIES = 16;
+
+	private static final int BEGIN_CONTACT = 0;
+	private static final int END_CONTACT = 1;
+	private static final int PRE_SOLVE = 2;
+	private static final int POST_SOLVE = 3;
+	private static final ContactListener[] EMPTY = new ContactListener[0];
+
+	private ContactListener[][] listeners;
+	private ContactListener[] dispatched;
+	private int numDispatched;
+
 	public CollisionHandler() {
-		listeners = new ObjectMap<Short, ObjectMap<Short, ContactListener>>();
+		listeners = new ContactListener[NUM_CATEGORIES * NUM_CATEGORIES][];
+
+		for (int i = 0; i < listeners.length; ++i) {
+			listeners[i] = EMPTY;
+		}
+
+		dispatched = new ContactListener[8];
+		numDispatched = 0;
 	}
-	
+
+	/**
+	 * Registers a listener for contacts between fixtures of the given
+	 * categories, each argument may combine several category bits
+	 */
 	public void addListener(short categoryA, short categoryB, ContactListener listener) {
-		addListenerInternal(categoryA, categoryB, listener);
-		addListenerInternal(categoryB, categoryA, listener);
+		for (int bitsA = categoryA & 0xffff; bitsA != 0; bitsA &= bitsA - 1) {
+			int a = Integer.numberOfTrailingZeros(bitsA);
+
+			for (int bitsB = categoryB & 0xffff; bitsB != 0; bitsB &= bitsB - 1) {
+				int b = Integer.numberOfTrailingZeros(bitsB);
+				addListenerInternal(a, b, listener);
+				addListenerInternal(b, a, listener);
+			}
+		}
 	}
-	
+
+	public void removeListener(short categoryA, short categoryB, ContactListener listener) {
+		for (int bitsA = categoryA & 0xffff; bitsA != 0; bitsA &= bitsA - 1) {
+			int a = Integer.numberOfTrailingZeros(bitsA);
+
+			for (int bitsB = categoryB & 0xffff; bitsB != 0; bitsB &= bitsB - 1) {
+				int b = Integer.numberOfTrailingZeros(bitsB);
+				removeListenerInternal(a, b, listener);
+				removeListenerInternal(b, a, listener);
+			}
+		}
+	}
+
 	@Override
 	public void beginContact(Contact contact) {
-		Fixture fixtureA = contact.getFixtureA();
-		Fixture fixtureB = contact.getFixtureB();
-		
-		ContactListener listener = getListener(fixtureA.getFilterData().categoryBits,
-											   fixtureB.getFilterData().categoryBits);
-		
-		if (listener != null) {
-			listener.beginContact(contact);
-		}
+		dispatch(BEGIN_CONTACT, contact, null, null);
 	}
 
 	@Override
 	public void endContact(Contact contact) {
-		Fixture fixtureA = contact.getFixtureA();
-		Fixture fixtureB = contact.getFixtureB();
-		
-		ContactListener listener = getListener(fixtureA.getFilterData().categoryBits,
-											   fixtureB.getFilterData().categoryBits);
-		
-		if (listener != null) {
-			listener.endContact(contact);
-		}
+		dispatch(END_CONTACT, contact, null, null);
 	}
 
 	@Override
 	public void preSolve(Contact contact, Manifold oldManifold) {
-		Fixture fixtureA = contact.getFixtureA();
-		Fixture fixtureB = contact.getFixtureB();
-		
-		ContactListener listener = getListener(fixtureA.getFilterData().categoryBits,
-											   fixtureB.getFilterData().categoryBits);
-		
-		if (listener != null) {
-			listener.preSolve(contact, oldManifold);
-		}
+		dispatch(PRE_SOLVE, contact, oldManifold, null);
 	}
 
 	@Override
 	public void postSolve(Contact contact, ContactImpulse impulse) {
+		dispatch(POST_SOLVE, contact, null, impulse);
+	}
+
+	private void dispatch(int callback, Contact contact, Manifold oldManifold, ContactImpulse impulse) {
 		Fixture fixtureA = contact.getFixtureA();
 		Fixture fixtureB = contact.getFixtureB();
-		
-		ContactListener listener = getListener(fixtureA.getFilterData().categoryBits,
-											   fixtureB.getFilterData().categoryBits);
-		
-		if (listener != null) {
+		int categoryA = fixtureA.getFilterData().categoryBits & 0xffff;
+		int categoryB = fixtureB.getFilterData().categoryBits & 0xffff;
+
+		numDispatched = 0;
+
+		for (int bitsA = categoryA; bitsA != 0; bitsA &= bitsA - 1) {
+			int row = Integer.numberOfTrailingZeros(bitsA) * NUM_CATEGORIES;
+
+			for (int bitsB = categoryB; bitsB != 0; bitsB &= bitsB - 1) {
+				ContactListener[] pairListeners = listeners[row + Integer.numberOfTrailingZeros(bitsB)];
+
+				for (int i = 0; i < pairListeners.length; ++i) {
+					ContactListener listener = pairListeners[i];
+
+					if (markDispatched(listener)) {
+						notify(listener, callback, contact, oldManifold, impulse);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < numDispatched; ++i) {
+			dispatched[i] = null;
+		}
+	}
+
+	private static void notify(ContactListener listener, int callback, Contact contact, Manifold oldManifold, ContactImpulse impulse) {
+		switch (callback) {
+		case BEGIN_CONTACT:
+			listener.beginContact(contact);
+			break;
+		case END_CONTACT:
+			listener.endContact(contact);
+			break;
+		case PRE_SOLVE:
+			listener.preSolve(contact, oldManifold);
+			break;
+		case POST_SOLVE:
 			listener.postSolve(contact, impulse);
+			break;
 		}
 	}
-	
-	private void addListenerInternal(short categoryA, short categoryB, ContactListener listener) {
-		ObjectMap<Short, ContactListener> listenerCollection = listeners.get(categoryA);
-		
-		if (listenerCollection == null) {
-			listenerCollection = new ObjectMap<Short, ContactListener>();
-			listeners.put(categoryA, listenerCollection);
+
+	/**
+	 * @return false if the listener was already notified during the current callback
+	 */
+	private boolean markDispatched(ContactListener listener) {
+		for (int i = 0; i < numDispatched; ++i) {
+			if (dispatched[i] == listener) {
+				return false;
+			}
+		}
+
+		if (numDispatched == dispatched.length) {
+			ContactListener[] newDispatched = new ContactListener[dispatched.length * 2];
+			System.arraycopy(dispatched, 0, newDispatched, 0, numDispatched);
+			dispatched = newDispatched;
 		}
-		
-		listenerCollection.put(categoryB, listener);
+
+		dispatched[numDispatched++] = listener;
+		return true;
 	}
-	
-	private ContactListener getListener(short categoryA, short categoryB) {
-		ObjectMap<Short, ContactListener> listenerCollection = listeners.get(categoryA);
-		
-		if (listenerCollection == null) {
-			return null;
+
+	private void addListenerInternal(int categoryA, int categoryB, ContactListener listener) {
+		int index = categoryA * NUM_CATEGORIES + categoryB;
+		ContactListener[] pairListeners = listeners[index];
+
+		for (int i = 0; i < pairListeners.length; ++i) {
+			if (pairListeners[i] == listener) {
+				return;
+			}
+		}
+
+		ContactListener[] newListeners = new ContactListener[pairListeners.length + 1];
+		System.arraycopy(pairListeners, 0, newListeners, 0, pairListeners.length);
+		newListeners[pairListeners.length] = listener;
+		listeners[index] = newListeners;
+	}
+
+	private void removeListenerInternal(int categoryA, int categoryB, ContactListener listener) {
+		int index = categoryA * NUM_CATEGORIES + categoryB;
+		ContactListener[] pairListeners = listeners[index];
+
+		for (int i = 0; i < pairListeners.length; ++i) {
+			if (pairListeners[i] == listener) {
+				if (pairListeners.length == 1) {
+					listeners[index] = EMPTY;
+					return;
+				}
+
+				ContactListener[] newListeners = new ContactListener[pairListeners.length - 1];
+				System.arraycopy(pairListeners, 0, newListeners, 0, i);
+				System.arraycopy(pairListeners, i + 1, newListeners, i, pairListeners.length - i - 1);
+				listeners[index] = newListeners;
+				return;
+			}
 		}
-		
-		return listenerCollection.get(categoryB);
 	}
 }
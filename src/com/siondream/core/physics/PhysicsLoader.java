@@ -33,54 +33,75 @@ import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.JsonValue.JsonIterator;
 import com.badlogic.gdx.utils.Logger;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.siondream.core.Env;
 
+/**
+ * @class PhysicsLoader
+ *
+ * @brief Asynchronous asset loader for PhysicsData objects
+ *
+ * Data parsed in loadAsync() is kept per file name until loadSync() picks it
+ * up, so a single instance can load several files at the same time.
+ */
 public class PhysicsLoader extends AsynchronousAssetLoader<PhysicsData, PhysicsLoader.PhysicsParameter > {
 	
 	static public class PhysicsParameter extends AssetLoaderParameters<PhysicsData> {}
 
 	private Logger logger;
-	private PhysicsData physicsData = null;
+	private ObjectMap<String, PhysicsData> pending;
 	
 	public PhysicsLoader(FileHandleResolver resolver) {
 		super(resolver);
 		logger = new Logger("Physics", Env.debugLevel);
+		pending = new ObjectMap<String, PhysicsData>();
 	}
 
 	@Override
 	public void loadAsync(AssetManager manager, String fileName, FileHandle file, PhysicsParameter parameter) {
-		physicsData = new PhysicsData();
-		loadData(fileName, file);
+		PhysicsData physicsData = new PhysicsData();
+		loadData(physicsData, fileName, file);
+		
+		synchronized (pending) {
+			pending.put(fileName, physicsData);
+		}
 	}
 
 	@Override
 	public PhysicsData loadSync(AssetManager manager, String fileName, FileHandle file, PhysicsParameter parameter) {
-		return physicsData;
+		synchronized (pending) {
+			return pending.remove(fileName);
+		}
 	}
 
 	@SuppressWarnings("rawtypes")
 	@Override
 	public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, PhysicsParameter parameter) {
+		// Left behind by an earlier load of the file that failed before loadSync()
+		synchronized (pending) {
+			pending.remove(fileName);
+		}
+		
 		return new Array<AssetDescriptor>();
 	}
 	
-	private void loadData(String fileName, FileHandle file) {
+	private void loadData(PhysicsData physicsData, String fileName, FileHandle file) {
 		logger.info("loading " + fileName);
 		
 		try {
 			JsonReader reader = new JsonReader();
 			JsonValue root = reader.parse(file);
 			
-			loadBodyDef(root);
-			loadMassData(root);
-			loadFixtureDefs(root);
+			loadBodyDef(physicsData, root);
+			loadMassData(physicsData, root);
+			loadFixtureDefs(physicsData, root);
 			
 		} catch (Exception e) {
 			logger.error("error loading " + fileName + " " + e.getMessage());
 		}
 	}
 	
-	private void loadBodyDef(JsonValue root) {
+	private void loadBodyDef(PhysicsData physicsData, JsonValue root) {
 		logger.info("loading BodyDef");
 		
 		physicsData.bodyDef.bullet = root.getBoolean("bullet", false);
@@ -106,7 +127,7 @@ public class PhysicsLoader extends AsynchronousAssetLoader<PhysicsData, PhysicsL
 		}
 	}
 	
-	private void loadMassData(JsonValue root) {
+	private void loadMassData(PhysicsData physicsData, JsonValue root) {
 		JsonValue massData = root.get("massData");
 		if (massData != null) {
 			logger.info("loading mass data");
@@ -117,7 +138,7 @@ public class PhysicsLoader extends AsynchronousAssetLoader<PhysicsData, PhysicsL
 		}
 	}
 	
-	private void loadFixtureDefs(JsonValue root) {
+	private void loadFixtureDefs(PhysicsData physicsData, JsonValue root) {
 		JsonValue fixtures = root.get("fixtures");
 		JsonIterator fixturesIt = fixtures.iterator();
 		int index = 0;
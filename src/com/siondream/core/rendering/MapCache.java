@@ -0,0 +1,351 @@
+package com.siondream.core.rendering;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.maps.tiled.tiles.AnimatedTiledMapTile;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Logger;
+import com.siondream.core.Env;
+
+/**
+ * @class MapCache
+ *
+ * @brief Renders a TiledMap keeping its static tile layers baked on the GPU
+ *
+ * Static tile layers are split in chunks of CHUNK_TILES x CHUNK_TILES tiles
+ * and baked into a SpriteCache once, only the chunks overlapping the camera
+ * are drawn. Layers holding animated tiles, or with a "dynamic" property set
+ * to true in Tiled, go through an OrthogonalTiledMapRenderer every frame.
+ *
+ * Baked layers keep the visibility flag dynamic but their opacity and tiles
+ * are captured at bake time, call rebuild() after modifying them.
+ */
+public class MapCache implements Disposable {
+
+	public static final int CHUNK_TILES = 32;
+
+	private static final int VERTEX_SIZE = 5;
+	private static final int QUAD_VERTICES = 6 * VERTEX_SIZE;
+
+	private Logger logger;
+	private TiledMap map;
+	private float unitScale;
+	private OrthogonalTiledMapRenderer renderer;
+	private SpriteCache cache;
+	private LayerCache[] layers;
+	private float[] quad;
+	private float[] vertices;
+
+	public MapCache(TiledMap map, float unitScale, SpriteBatch batch, boolean bake) {
+		this.logger = new Logger("MapCache", Env.debugLevel);
+		this.map = map;
+		this.unitScale = unitScale;
+		this.renderer = new OrthogonalTiledMapRenderer(map, unitScale, batch);
+		this.quad = new float[QUAD_VERTICES];
+		this.vertices = new float[4 * VERTEX_SIZE];
+
+		MapLayers mapLayers = map.getLayers();
+		layers = new LayerCache[mapLayers.getCount()];
+
+		for (int i = 0; i < layers.length; ++i) {
+			layers[i] = new LayerCache(i, bake && isStatic(mapLayers.get(i)));
+		}
+
+		if (bake) {
+			rebuild();
+		}
+	}
+
+	public TiledMap getMap() {
+		return map;
+	}
+
+	/**
+	 * Bakes every static tile layer again
+	 */
+	public void rebuild() {
+		if (cache != null) {
+			cache.dispose();
+			cache = null;
+		}
+
+		MapLayers mapLayers = map.getLayers();
+		int numTiles = 0;
+
+		for (int i = 0; i < layers.length; ++i) {
+			if (layers[i].baked) {
+				numTiles += countTiles((TiledMapTileLayer)mapLayers.get(i));
+			}
+		}
+
+		if (numTiles == 0) {
+			return;
+		}
+
+		logger.info("baking " + numTiles + " static tiles");
+
+		cache = new SpriteCache(numTiles, false);
+
+		for (int i = 0; i < layers.length; ++i) {
+			if (layers[i].baked) {
+				bakeLayer(layers[i], (TiledMapTileLayer)mapLayers.get(i));
+			}
+		}
+	}
+
+	public void render(OrthographicCamera camera) {
+		float width = camera.viewportWidth * camera.zoom;
+		float height = camera.viewportHeight * camera.zoom;
+		float minX = camera.position.x - width * 0.5f;
+		float minY = camera.position.y - height * 0.5f;
+		float maxX = minX + width;
+		float maxY = minY + height;
+
+		renderer.setView(camera);
+
+		if (cache != null) {
+			cache.setProjectionMatrix(camera.combined);
+		}
+
+		MapLayers mapLayers = map.getLayers();
+		boolean caching = false;
+
+		for (int i = 0; i < layers.length; ++i) {
+			LayerCache layer = layers[i];
+
+			if (!mapLayers.get(i).isVisible()) {
+				continue;
+			}
+
+			if (layer.baked) {
+				if (layer.chunkIDs == null) {
+					continue;
+				}
+
+				if (!caching) {
+					Gdx.gl.glEnable(GL20.GL_BLEND);
+					Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+					cache.begin();
+					caching = true;
+				}
+
+				int col1 = Math.max(0, (int)Math.floor(minX / layer.chunkWidth));
+				int col2 = Math.min(layer.chunkColumns - 1, (int)Math.floor(maxX / layer.chunkWidth));
+				int row1 = Math.max(0, (int)Math.floor(minY / layer.chunkHeight));
+				int row2 = Math.min(layer.chunkRows - 1, (int)Math.floor(maxY / layer.chunkHeight));
+
+				for (int row = row1; row <= row2; ++row) {
+					for (int col = col1; col <= col2; ++col) {
+						int id = layer.chunkIDs[row * layer.chunkColumns + col];
+
+						if (id != -1) {
+							cache.draw(id);
+						}
+					}
+				}
+			}
+			else if (mapLayers.get(i) instanceof TiledMapTileLayer) {
+				if (caching) {
+					cache.end();
+					caching = false;
+				}
+
+				renderer.render(layer.index);
+			}
+		}
+
+		if (caching) {
+			cache.end();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		if (cache != null) {
+			cache.dispose();
+			cache = null;
+		}
+
+		renderer.dispose();
+	}
+
+	private boolean isStatic(MapLayer layer) {
+		if (!(layer instanceof TiledMapTileLayer)) {
+			return false;
+		}
+
+		if (Boolean.parseBoolean(layer.getProperties().get("dynamic", "false", String.class))) {
+			return false;
+		}
+
+		TiledMapTileLayer tileLayer = (TiledMapTileLayer)layer;
+
+		for (int row = 0; row < tileLayer.getHeight(); ++row) {
+			for (int col = 0; col < tileLayer.getWidth(); ++col) {
+				Cell cell = tileLayer.getCell(col, row);
+
+				if (cell != null && cell.getTile() instanceof AnimatedTiledMapTile) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private int countTiles(TiledMapTileLayer layer) {
+		int count = 0;
+
+		for (int row = 0; row < layer.getHeight(); ++row) {
+			for (int col = 0; col < layer.getWidth(); ++col) {
+				Cell cell = layer.getCell(col, row);
+
+				if (cell != null && cell.getTile() != null) {
+					++count;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	private void bakeLayer(LayerCache layerCache, TiledMapTileLayer layer) {
+		float tileWidth = layer.getTileWidth() * unitScale;
+		float tileHeight = layer.getTileHeight() * unitScale;
+		float color = Color.toFloatBits(1.0f, 1.0f, 1.0f, layer.getOpacity());
+
+		layerCache.chunkWidth = tileWidth * CHUNK_TILES;
+		layerCache.chunkHeight = tileHeight * CHUNK_TILES;
+		layerCache.chunkColumns = (layer.getWidth() + CHUNK_TILES - 1) / CHUNK_TILES;
+		layerCache.chunkRows = (layer.getHeight() + CHUNK_TILES - 1) / CHUNK_TILES;
+		layerCache.chunkIDs = new int[layerCache.chunkColumns * layerCache.chunkRows];
+
+		for (int chunkRow = 0; chunkRow < layerCache.chunkRows; ++chunkRow) {
+			for (int chunkCol = 0; chunkCol < layerCache.chunkColumns; ++chunkCol) {
+				int row1 = chunkRow * CHUNK_TILES;
+				int row2 = Math.min(row1 + CHUNK_TILES, layer.getHeight());
+				int col1 = chunkCol * CHUNK_TILES;
+				int col2 = Math.min(col1 + CHUNK_TILES, layer.getWidth());
+				boolean empty = true;
+
+				cache.beginCache();
+
+				for (int row = row1; row < row2; ++row) {
+					for (int col = col1; col < col2; ++col) {
+						Cell cell = layer.getCell(col, row);
+
+						if (cell == null || cell.getTile() == null) {
+							continue;
+						}
+
+						addTile(cell, col * tileWidth, row * tileHeight, color);
+						empty = false;
+					}
+				}
+
+				int id = cache.endCache();
+				layerCache.chunkIDs[chunkRow * layerCache.chunkColumns + chunkCol] = empty ? -1 : id;
+			}
+		}
+	}
+
+	/**
+	 * Adds a tile to the cache being built, mirroring OrthogonalTiledMapRenderer's
+	 * vertex layout, flips and rotations
+	 */
+	private void addTile(Cell cell, float x, float y, float color) {
+		TiledMapTile tile = cell.getTile();
+		TextureRegion region = tile.getTextureRegion();
+		float[] v = vertices;
+
+		float x1 = x;
+		float y1 = y;
+		float x2 = x1 + region.getRegionWidth() * unitScale;
+		float y2 = y1 + region.getRegionHeight() * unitScale;
+		float u1 = region.getU();
+		float v1 = region.getV2();
+		float u2 = region.getU2();
+		float v2 = region.getV();
+
+		v[Batch.X1] = x1; v[Batch.Y1] = y1; v[Batch.C1] = color; v[Batch.U1] = u1; v[Batch.V1] = v1;
+		v[Batch.X2] = x1; v[Batch.Y2] = y2; v[Batch.C2] = color; v[Batch.U2] = u1; v[Batch.V2] = v2;
+		v[Batch.X3] = x2; v[Batch.Y3] = y2; v[Batch.C3] = color; v[Batch.U3] = u2; v[Batch.V3] = v2;
+		v[Batch.X4] = x2; v[Batch.Y4] = y1; v[Batch.C4] = color; v[Batch.U4] = u2; v[Batch.V4] = v1;
+
+		if (cell.getFlipHorizontally()) {
+			swap(v, Batch.U1, Batch.U3);
+			swap(v, Batch.U2, Batch.U4);
+		}
+
+		if (cell.getFlipVertically()) {
+			swap(v, Batch.V1, Batch.V3);
+			swap(v, Batch.V2, Batch.V4);
+		}
+
+		switch (cell.getRotation()) {
+		case Cell.ROTATE_90:
+			rotate(v, Batch.U1, Batch.U2, Batch.U3, Batch.U4);
+			rotate(v, Batch.V1, Batch.V2, Batch.V3, Batch.V4);
+			break;
+		case Cell.ROTATE_180:
+			swap(v, Batch.U1, Batch.U3);
+			swap(v, Batch.U2, Batch.U4);
+			swap(v, Batch.V1, Batch.V3);
+			swap(v, Batch.V2, Batch.V4);
+			break;
+		case Cell.ROTATE_270:
+			rotate(v, Batch.U1, Batch.U4, Batch.U3, Batch.U2);
+			rotate(v, Batch.V1, Batch.V4, Batch.V3, Batch.V2);
+			break;
+		}
+
+		// The cache does not use indices, emit the quad as two triangles
+		System.arraycopy(v, 0, quad, 0, 3 * VERTEX_SIZE);
+		System.arraycopy(v, 2 * VERTEX_SIZE, quad, 3 * VERTEX_SIZE, 2 * VERTEX_SIZE);
+		System.arraycopy(v, 0, quad, 5 * VERTEX_SIZE, VERTEX_SIZE);
+
+		cache.add(region.getTexture(), quad, 0, QUAD_VERTICES);
+	}
+
+	private static void swap(float[] v, int a, int b) {
+		float tmp = v[a];
+		v[a] = v[b];
+		v[b] = tmp;
+	}
+
+	private static void rotate(float[] v, int a, int b, int c, int d) {
+		float tmp = v[a];
+		v[a] = v[b];
+		v[b] = v[c];
+		v[c] = v[d];
+		v[d] = tmp;
+	}
+
+	private static class LayerCache {
+		final int[] index;
+		final boolean baked;
+		int[] chunkIDs;
+		int chunkColumns;
+		int chunkRows;
+		float chunkWidth;
+		float chunkHeight;
+
+		LayerCache(int index, boolean baked) {
+			this.index = new int[] { index };
+			this.baked = baked;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.siondream.core.rendering;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Logger;
+import com.siondream.core.Env;
+
+/**
+ * @class ParticleCompositor
+ *
+ * @brief Offscreen buffer particles are drawn into before being composited over the scene
+ *
+ * The buffer is created lazily and reallocated when the screen size changes.
+ * A scale lower than 1 renders particles at a fraction of the screen
+ * resolution, which cuts fill rate at the cost of sharpness.
+ *
+ * The clear color is never read back from GL, that would stall the pipeline
+ * every frame. end() sets it back to Env.backgroundColor, the color the
+ * scene is cleared with.
+ */
+public class ParticleCompositor implements Disposable {
+
+	private Logger logger;
+	private FrameBuffer frameBuffer;
+	private TextureRegion region;
+	private Matrix4 projection;
+	private Matrix4 previousProjection;
+	private float scale;
+	private int screenWidth;
+	private int screenHeight;
+
+	public ParticleCompositor(float scale) {
+		logger = new Logger("ParticleCompositor", Env.debugLevel);
+		projection = new Matrix4();
+		previousProjection = new Matrix4();
+		region = new TextureRegion();
+		frameBuffer = null;
+		setScale(scale);
+	}
+
+	/**
+	 * @param scale buffer resolution relative to the screen, in the (0, 1] range
+	 */
+	public void setScale(float scale) {
+		scale = Math.max(Math.min(scale, 1.0f), 0.1f);
+
+		if (this.scale != scale) {
+			this.scale = scale;
+
+			// Forces the buffer to be reallocated on the next resize() call
+			screenWidth = 0;
+			screenHeight = 0;
+		}
+	}
+
+	public float getScale() {
+		return scale;
+	}
+
+	/**
+	 * Makes sure the buffer matches the given screen size, reallocating it if needed
+	 */
+	public void resize(int width, int height) {
+		if (frameBuffer != null && width == screenWidth && height == screenHeight) {
+			return;
+		}
+
+		screenWidth = width;
+		screenHeight = height;
+
+		int bufferWidth = Math.max((int)(width * scale), 1);
+		int bufferHeight = Math.max((int)(height * scale), 1);
+
+		logger.info("allocating " + bufferWidth + "x" + bufferHeight + " particle buffer");
+
+		if (frameBuffer != null) {
+			frameBuffer.dispose();
+		}
+
+		frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, bufferWidth, bufferHeight, false);
+		region.setRegion(frameBuffer.getColorBufferTexture());
+		region.flip(false, true);
+		projection.setToOrtho2D(0.0f, 0.0f, width, height);
+	}
+
+	/**
+	 * Binds and clears the offscreen buffer, particles drawn afterwards end up in it
+	 */
+	public void begin() {
+		frameBuffer.begin();
+		Gdx.gl.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+	}
+
+	/**
+	 * Unbinds the offscreen buffer and restores the scene clear color
+	 */
+	public void end() {
+		Color color = Env.backgroundColor;
+
+		frameBuffer.end();
+		Gdx.gl.glClearColor(color.r, color.g, color.b, color.a);
+	}
+
+	/**
+	 * Draws the buffer as a full screen quad, the batch must not be drawing
+	 */
+	public void composite(SpriteBatch batch) {
+		previousProjection.set(batch.getProjectionMatrix());
+
+		batch.setProjectionMatrix(projection);
+		batch.begin();
+		batch.draw(region, 0.0f, 0.0f, screenWidth, screenHeight);
+		batch.end();
+
+		batch.setProjectionMatrix(previousProjection);
+	}
+
+	@Override
+	public void dispose() {
+		if (frameBuffer != null) {
+			frameBuffer.dispose();
+			frameBuffer = null;
+		}
+	}
+}
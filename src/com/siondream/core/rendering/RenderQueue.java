@@ -0,0 +1,426 @@
+package com.siondream.core.rendering;
+
+import ashley.core.Entity;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Logger;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.Pool.Poolable;
+import com.siondream.core.Env;
+import com.siondream.core.entity.components.ShaderComponent;
+import com.siondream.core.entity.components.SpineComponent;
+import com.siondream.core.entity.components.TextureComponent;
+import com.siondream.core.entity.components.TransformComponent;
+
+/**
+ * @class RenderQueue
+ *
+ * @brief Sorts render items by depth and texture using packed primitive keys
+ *
+ * Each frame items are pushed with add(), sorted with sort() and drawn in
+ * order through get(). Keys are laid out as follows (most significant first):
+ *
+ * - 32 bits: depth, farthest (highest z) first, sub-unit differences preserved
+ * - 12 bits: texture id, so items at the same depth are grouped by texture
+ * - 20 bits: index of the item in the queue
+ *
+ * When a depth band is set, the depth bits are replaced by the band the item
+ * falls into (23 bits) followed by its shader id (8 bits). Items within the
+ * same band are then grouped by shader and texture, trading exact depth order
+ * inside the band for fewer SpriteBatch flushes.
+ *
+ * Ids are handed out in order and wrap around once exhausted, skipping the
+ * reserved 0. resetIDs() forgets every texture and shader seen so far, call it
+ * when assets are unloaded so they are not kept reachable.
+ *
+ * Once the queue has grown to its peak size it does not allocate.
+ */
+public class RenderQueue {
+
+	public static final int MAX_ITEMS = 1 << 20;
+
+	private static final int INDEX_BITS = 20;
+	private static final int TEXTURE_BITS = 12;
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+	private static final int TEXTURE_MASK = (1 << TEXTURE_BITS) - 1;
+	private static final int SHADER_BITS = 8;
+	private static final int SHADER_MASK = (1 << SHADER_BITS) - 1;
+	private static final int MAX_BAND = (1 << 22) - 1;
+	private static final int MIN_BAND = -(1 << 22);
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private Logger logger;
+	private long[] keys;
+	private RenderItem[] items;
+	private int size;
+	private ObjectIntMap<Texture> textureIDs;
+	private int nextTextureID;
+	private ObjectIntMap<ShaderProgram> shaderIDs;
+	private int nextShaderID;
+	private int idGeneration;
+	private float invDepthBand;
+
+	public RenderQueue() {
+		this(256);
+	}
+
+	public RenderQueue(int capacity) {
+		logger = new Logger("RenderQueue", Env.debugLevel);
+		keys = new long[capacity];
+		items = new RenderItem[capacity];
+		size = 0;
+		textureIDs = new ObjectIntMap<Texture>();
+
+		// Texture id 0 is reserved for items without a texture (Spine skeletons)
+		nextTextureID = 1;
+		
+		// Shader id 0 is reserved for the default SpriteBatch shader
+		shaderIDs = new ObjectIntMap<ShaderProgram>();
+		nextShaderID = 1;
+		idGeneration = 0;
+		invDepthBand = 0.0f;
+	}
+
+	/**
+	 * @param size depth covered by each band, 0 to sort by exact depth
+	 */
+	public void setDepthBand(float size) {
+		invDepthBand = size > 0.0f ? 1.0f / size : 0.0f;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; ++i) {
+			items[i] = null;
+		}
+
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void add(RenderItem item) {
+		if (size == MAX_ITEMS) {
+			logger.error("maximum number of render items reached");
+			return;
+		}
+
+		if (size == keys.length) {
+			grow();
+		}
+
+		// Ids cached by the item are stale after resetIDs()
+		boolean stale = item.idGeneration != idGeneration;
+		item.idGeneration = idGeneration;
+
+		if (item.texture != null) {
+			Texture texture = item.texture.region.getTexture();
+
+			if (texture != item.boundTexture || stale) {
+				item.boundTexture = texture;
+				item.textureID = getTextureID(texture);
+			}
+		}
+
+		ShaderProgram shader = item.shader != null ? item.shader.shader : null;
+
+		if (shader != item.boundShader || stale) {
+			item.boundShader = shader;
+			item.shaderID = shader != null ? getShaderID(shader) : 0;
+		}
+
+		float depth = item.transform != null ? item.transform.position.z : Float.POSITIVE_INFINITY;
+		int depthKey = invDepthBand > 0.0f ? bandToKey(depth, item.shaderID) : depthToKey(depth);
+
+		items[size] = item;
+		keys[size] = ((long)depthKey << 32) |
+					 ((long)(item.textureID & TEXTURE_MASK) << INDEX_BITS) |
+					 size;
+		++size;
+	}
+
+	public RenderItem get(int index) {
+		return items[(int)(keys[index] & INDEX_MASK)];
+	}
+
+	public void sort() {
+		sort(keys, 0, size - 1);
+	}
+
+	public int getTextureID(Texture texture) {
+		int id = textureIDs.get(texture, -1);
+
+		if (id == -1) {
+			if (nextTextureID > TEXTURE_MASK) {
+				nextTextureID = 1;
+			}
+
+			id = nextTextureID++;
+			textureIDs.put(texture, id);
+		}
+
+		return id;
+	}
+
+	public int getShaderID(ShaderProgram shader) {
+		int id = shaderIDs.get(shader, -1);
+
+		if (id == -1) {
+			if (nextShaderID > SHADER_MASK) {
+				nextShaderID = 1;
+			}
+
+			id = nextShaderID++;
+			shaderIDs.put(shader, id);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Forgets the ids of every texture and shader, items pick new ones the next time they are added
+	 */
+	public void resetIDs() {
+		textureIDs.clear();
+		shaderIDs.clear();
+		nextTextureID = 1;
+		nextShaderID = 1;
+		++idGeneration;
+	}
+
+	private void grow() {
+		int capacity = Math.min(keys.length * 2, MAX_ITEMS);
+
+		long[] newKeys = new long[capacity];
+		System.arraycopy(keys, 0, newKeys, 0, size);
+		keys = newKeys;
+
+		RenderItem[] newItems = new RenderItem[capacity];
+		System.arraycopy(items, 0, newItems, 0, size);
+		items = newItems;
+	}
+
+	/**
+	 * Maps a float to an int that sorts in the opposite order, so the
+	 * highest depth comes first
+	 */
+	private static int depthToKey(float depth) {
+		int bits = Float.floatToIntBits(depth);
+
+		if (bits < 0) {
+			bits ^= 0x7fffffff;
+		}
+
+		return ~bits;
+	}
+
+	/**
+	 * Maps a depth to a non negative int holding its band, highest band first,
+	 * and the shader id in the lowest bits
+	 */
+	private int bandToKey(float depth, int shaderID) {
+		float band = (float)Math.floor(depth * invDepthBand);
+		int clamped = band >= MAX_BAND ? MAX_BAND : band <= MIN_BAND ? MIN_BAND : (int)band;
+
+		return ((MAX_BAND - clamped) << SHADER_BITS) | (shaderID & SHADER_MASK);
+	}
+
+	/**
+	 * In place quicksort, java.util.Arrays may allocate work buffers
+	 */
+	private static void sort(long[] a, int low, int high) {
+		while (high - low >= INSERTION_SORT_THRESHOLD) {
+			int mid = (low + high) >>> 1;
+
+			if (a[mid] < a[low]) swap(a, mid, low);
+			if (a[high] < a[low]) swap(a, high, low);
+			if (a[high] < a[mid]) swap(a, high, mid);
+
+			long pivot = a[mid];
+			int i = low;
+			int j = high;
+
+			while (i <= j) {
+				while (a[i] < pivot) ++i;
+				while (a[j] > pivot) --j;
+
+				if (i <= j) {
+					swap(a, i++, j--);
+				}
+			}
+
+			// Recurse into the smaller half to bound the stack depth
+			if (j - low < high - i) {
+				sort(a, low, j);
+				low = i;
+			}
+			else {
+				sort(a, i, high);
+				high = j;
+			}
+		}
+
+		for (int i = low + 1; i <= high; ++i) {
+			long key = a[i];
+			int j = i - 1;
+
+			while (j >= low && a[j] > key) {
+				a[j + 1] = a[j];
+				--j;
+			}
+
+			a[j + 1] = key;
+		}
+	}
+
+	private static void swap(long[] a, int i, int j) {
+		long tmp = a[i];
+		a[i] = a[j];
+		a[j] = tmp;
+	}
+
+	/**
+	 * @class RenderItem
+	 *
+	 * @brief Caches the components needed to render an entity
+	 *
+	 * In snapshot mode transform and texture are private copies of the entity
+	 * components, refreshed through copySnapshot(), so the simulation can keep
+	 * modifying the originals while the item is being drawn.
+	 */
+	public static class RenderItem implements Poolable {
+		public Entity entity;
+		public TransformComponent transform;
+		public TextureComponent texture;
+		public TransformComponent sourceTransform;
+		public TextureComponent sourceTexture;
+		public SpineComponent spine;
+		public ShaderComponent shader;
+
+		// World space bounds, rotation independent
+		public float minX;
+		public float minY;
+		public float maxX;
+		public float maxY;
+
+		Texture boundTexture;
+		int textureID;
+		ShaderProgram boundShader;
+		int shaderID;
+
+		// Spatial grid bookkeeping
+		boolean inGrid;
+		int minCellX;
+		int minCellY;
+		int maxCellX;
+		int maxCellY;
+		int queryStamp;
+		int dynamicIndex;
+		boolean oversized;
+		int idGeneration;
+
+		private TransformComponent transformSnapshot;
+		private TextureComponent textureSnapshot;
+
+		public RenderItem() {
+			reset();
+		}
+
+		public void set(Entity entity) {
+			set(entity, false);
+		}
+
+		public void set(Entity entity, boolean snapshot) {
+			this.entity = entity;
+			sourceTransform = entity.getComponent(TransformComponent.class);
+			sourceTexture = entity.getComponent(TextureComponent.class);
+
+			if (snapshot) {
+				if (transformSnapshot == null) {
+					transformSnapshot = new TransformComponent();
+					textureSnapshot = new TextureComponent();
+				}
+
+				transform = sourceTransform != null ? transformSnapshot : null;
+				texture = sourceTexture != null ? textureSnapshot : null;
+				copyTransform();
+				copySnapshot();
+			}
+			else {
+				transform = sourceTransform;
+				texture = sourceTexture;
+			}
+
+			spine = entity.getComponent(SpineComponent.class);
+			shader = entity.getComponent(ShaderComponent.class);
+			boundTexture = null;
+			textureID = 0;
+			boundShader = null;
+			shaderID = 0;
+		}
+
+		public int getTextureID() {
+			return textureID;
+		}
+
+		/**
+		 * Refreshes the private copies in snapshot mode, static transforms are
+		 * only copied by set()
+		 */
+		public void copySnapshot() {
+			if (transform != sourceTransform && !transform.isStatic) {
+				copyTransform();
+			}
+
+			if (texture != sourceTexture && texture != null) {
+				texture.region = sourceTexture.region;
+			}
+		}
+
+		private void copyTransform() {
+			if (transform != null) {
+				transform.position.set(sourceTransform.position);
+				transform.scale = sourceTransform.scale;
+				transform.angle = sourceTransform.angle;
+				transform.isStatic = sourceTransform.isStatic;
+			}
+		}
+
+		public ShaderProgram getShader() {
+			return boundShader;
+		}
+
+		public void updateBounds() {
+			float width = texture.region.getRegionWidth();
+			float height = texture.region.getRegionHeight();
+			float radius = 0.5f * (float)Math.sqrt(width * width + height * height) * transform.scale * Env.pixelsToMetres;
+
+			minX = transform.position.x - radius;
+			minY = transform.position.y - radius;
+			maxX = transform.position.x + radius;
+			maxY = transform.position.y + radius;
+		}
+
+		@Override
+		public void reset() {
+			entity = null;
+			transform = null;
+			texture = null;
+			sourceTransform = null;
+			sourceTexture = null;
+			spine = null;
+			shader = null;
+			boundTexture = null;
+			textureID = 0;
+			boundShader = null;
+			shaderID = 0;
+			idGeneration = -1;
+			inGrid = false;
+			oversized = false;
+			queryStamp = 0;
+			dynamicIndex = -1;
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package com.siondream.core.rendering;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.Pool;
+import com.siondream.core.rendering.RenderQueue.RenderItem;
+
+/**
+ * @class SpatialGrid
+ *
+ * @brief Hashed uniform grid used as a broadphase for frustum culling
+ *
+ * Items are bucketed by the cells their bounds overlap. Static items are
+ * inserted once, dynamic items are re-bucketed in update() only when their
+ * cell range changes. Queries only visit the cells overlapping the given
+ * rectangle, so off-screen items cost nothing. Dynamic items remember their
+ * slot in the dynamic list so removing them does not search it.
+ *
+ * Cell coordinates are clamped, so huge or infinite bounds cannot overflow.
+ * Items covering more than MAX_ITEM_CELLS cells are kept in a separate list
+ * tested by every query, and queries covering more cells than the grid holds
+ * walk the occupied cells instead of the whole rectangle.
+ */
+public class SpatialGrid {
+
+	public static final int MAX_ITEM_CELLS = 64;
+
+	private static final int CELL_LIMIT = 1 << 24;
+
+	private float invCellSize;
+	private LongMap<Array<RenderItem>> cells;
+	private Array<RenderItem> dynamicItems;
+	private Array<RenderItem> oversizedItems;
+	private Pool<Array<RenderItem>> cellPool;
+	private int queryStamp;
+	private int visitedCells;
+	private int visitedItems;
+
+	public SpatialGrid(float cellSize) {
+		invCellSize = 1.0f / cellSize;
+		cells = new LongMap<Array<RenderItem>>();
+		dynamicItems = new Array<RenderItem>(false, 64);
+		oversizedItems = new Array<RenderItem>(false, 16);
+		cellPool = new Pool<Array<RenderItem>>() {
+			@Override
+			protected Array<RenderItem> newObject() {
+				return new Array<RenderItem>(false, 16);
+			}
+		};
+		queryStamp = 0;
+	}
+
+	public void add(RenderItem item) {
+		if (item.inGrid) {
+			remove(item);
+		}
+
+		item.updateBounds();
+		item.minCellX = toCell(item.minX);
+		item.minCellY = toCell(item.minY);
+		item.maxCellX = toCell(item.maxX);
+		item.maxCellY = toCell(item.maxY);
+		item.inGrid = true;
+		insertIntoCells(item);
+
+		if (!item.transform.isStatic) {
+			item.dynamicIndex = dynamicItems.size;
+			dynamicItems.add(item);
+		}
+	}
+
+	public void remove(RenderItem item) {
+		if (!item.inGrid) {
+			return;
+		}
+
+		removeFromCells(item);
+		removeDynamic(item);
+		item.inGrid = false;
+	}
+
+	/**
+	 * Refreshes the bounds of dynamic items and moves them across cells when needed
+	 */
+	public void update() {
+		for (int i = 0; i < dynamicItems.size; ++i) {
+			RenderItem item = dynamicItems.get(i);
+			item.updateBounds();
+
+			int minCellX = toCell(item.minX);
+			int minCellY = toCell(item.minY);
+			int maxCellX = toCell(item.maxX);
+			int maxCellY = toCell(item.maxY);
+
+			if (minCellX != item.minCellX || minCellY != item.minCellY ||
+				maxCellX != item.maxCellX || maxCellY != item.maxCellY) {
+				removeFromCells(item);
+				item.minCellX = minCellX;
+				item.minCellY = minCellY;
+				item.maxCellX = maxCellX;
+				item.maxCellY = maxCellY;
+				insertIntoCells(item);
+			}
+		}
+	}
+
+	/**
+	 * Adds every item overlapping the given rectangle to the queue
+	 */
+	public void query(float minX, float minY, float maxX, float maxY, RenderQueue queue) {
+		int minCellX = toCell(minX);
+		int minCellY = toCell(minY);
+		int maxCellX = toCell(maxX);
+		int maxCellY = toCell(maxY);
+
+		++queryStamp;
+		visitedCells = 0;
+		visitedItems = 0;
+
+		queryItems(oversizedItems, minX, minY, maxX, maxY, queue);
+
+		if (getNumCells(minCellX, minCellY, maxCellX, maxCellY) > cells.size) {
+			for (Array<RenderItem> cell : cells.values()) {
+				++visitedCells;
+				queryItems(cell, minX, minY, maxX, maxY, queue);
+			}
+
+			return;
+		}
+
+		for (int y = minCellY; y <= maxCellY; ++y) {
+			for (int x = minCellX; x <= maxCellX; ++x) {
+				Array<RenderItem> cell = cells.get(getKey(x, y));
+
+				if (cell == null) {
+					continue;
+				}
+
+				++visitedCells;
+				queryItems(cell, minX, minY, maxX, maxY, queue);
+			}
+		}
+	}
+
+	private void queryItems(Array<RenderItem> candidates, float minX, float minY, float maxX, float maxY, RenderQueue queue) {
+		for (int i = 0; i < candidates.size; ++i) {
+			RenderItem item = candidates.get(i);
+
+			// Items spanning several cells are only tested once
+			if (item.queryStamp == queryStamp) {
+				continue;
+			}
+
+			item.queryStamp = queryStamp;
+			++visitedItems;
+
+			if (item.maxX >= minX && item.minX <= maxX &&
+				item.maxY >= minY && item.minY <= maxY) {
+				queue.add(item);
+			}
+		}
+	}
+
+	public int getNumCells() {
+		return cells.size;
+	}
+
+	public int getVisitedCells() {
+		return visitedCells;
+	}
+
+	public int getVisitedItems() {
+		return visitedItems;
+	}
+
+	public void clear() {
+		for (Array<RenderItem> cell : cells.values()) {
+			for (int i = 0; i < cell.size; ++i) {
+				cell.get(i).inGrid = false;
+			}
+
+			cell.clear();
+			cellPool.free(cell);
+		}
+
+		cells.clear();
+
+		for (int i = 0; i < oversizedItems.size; ++i) {
+			oversizedItems.get(i).inGrid = false;
+			oversizedItems.get(i).oversized = false;
+		}
+
+		oversizedItems.clear();
+
+		for (int i = 0; i < dynamicItems.size; ++i) {
+			dynamicItems.get(i).dynamicIndex = -1;
+		}
+
+		dynamicItems.clear();
+	}
+
+	private void removeDynamic(RenderItem item) {
+		if (item.dynamicIndex < 0) {
+			return;
+		}
+
+		// The last item fills the hole, order does not matter
+		RenderItem last = dynamicItems.pop();
+
+		if (last != item) {
+			dynamicItems.set(item.dynamicIndex, last);
+			last.dynamicIndex = item.dynamicIndex;
+		}
+
+		item.dynamicIndex = -1;
+	}
+
+	private void insertIntoCells(RenderItem item) {
+		if (getNumCells(item.minCellX, item.minCellY, item.maxCellX, item.maxCellY) > MAX_ITEM_CELLS) {
+			item.oversized = true;
+			oversizedItems.add(item);
+			return;
+		}
+
+		for (int y = item.minCellY; y <= item.maxCellY; ++y) {
+			for (int x = item.minCellX; x <= item.maxCellX; ++x) {
+				long key = getKey(x, y);
+				Array<RenderItem> cell = cells.get(key);
+
+				if (cell == null) {
+					cell = cellPool.obtain();
+					cells.put(key, cell);
+				}
+
+				cell.add(item);
+			}
+		}
+	}
+
+	private void removeFromCells(RenderItem item) {
+		// Oversized items are rare, a linear search is fine
+		if (item.oversized) {
+			oversizedItems.removeValue(item, true);
+			item.oversized = false;
+			return;
+		}
+
+		for (int y = item.minCellY; y <= item.maxCellY; ++y) {
+			for (int x = item.minCellX; x <= item.maxCellX; ++x) {
+				long key = getKey(x, y);
+				Array<RenderItem> cell = cells.get(key);
+
+				if (cell == null) {
+					continue;
+				}
+
+				cell.removeValue(item, true);
+
+				if (cell.size == 0) {
+					cells.remove(key);
+					cellPool.free(cell);
+				}
+			}
+		}
+	}
+
+	private int toCell(float value) {
+		float cell = value * invCellSize;
+
+		// NaN falls into the lower bound
+		if (!(cell > -CELL_LIMIT)) {
+			return -CELL_LIMIT;
+		}
+
+		if (cell > CELL_LIMIT) {
+			return CELL_LIMIT;
+		}
+
+		return (int)Math.floor(cell);
+	}
+
+	private static long getNumCells(int minCellX, int minCellY, int maxCellX, int maxCellY) {
+		return (long)(maxCellX - minCellX + 1) * (maxCellY - minCellY + 1);
+	}
+
+	private static long getKey(int x, int y) {
+		return ((long)x << 32) | (y & 0xffffffffL);
+	}
+}
@@ -11,6 +11,7 @@ import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.JsonValue.JsonIterator;
 import com.badlogic.gdx.utils.Logger;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.esotericsoftware.spine.AnimationStateData;
 import com.esotericsoftware.spine.SkeletonData;
 import com.siondream.core.Env;
@@ -21,13 +22,13 @@ public class AnimationStateDataLoader
 									AnimationStateDataLoader.AnimationStateDataLoaderParameter> {
 
 	private Logger logger;
-	private AnimationStateData data;
+	private ObjectMap<String, AnimationStateData> pending;
 	
 	public AnimationStateDataLoader(FileHandleResolver resolver) {
 		super(resolver);
 		
 		logger = new Logger("AnimationStateDataLoader", Env.debugLevel);
-		data = null;
+		pending = new ObjectMap<String, AnimationStateData>();
 		
 		logger.info("initialising");
 	}
@@ -36,7 +37,7 @@ public class AnimationStateDataLoader
 	public void loadAsync(AssetManager manager, String fileName, FileHandle file, AnimationStateDataLoaderParameter parameter) {
 		logger.info("loading " + fileName);
 		
-		data = new AnimationStateData(manager.get(parameter.skeletonName, SkeletonData.class));
+		AnimationStateData data = new AnimationStateData(manager.get(parameter.skeletonName, SkeletonData.class));
 		
 		try {
 			JsonReader reader = new JsonReader();
@@ -64,15 +65,26 @@ public class AnimationStateDataLoader
 		catch (Exception e) {
 			logger.error("error loading " + fileName + " " + e.getMessage());
 		}
+		
+		synchronized (pending) {
+			pending.put(fileName, data);
+		}
 	}
 
 	@Override
 	public AnimationStateData loadSync(AssetManager manager, String fileName, FileHandle file, AnimationStateDataLoaderParameter parameter) {
-		return data;
+		synchronized (pending) {
+			return pending.remove(fileName);
+		}
 	}
 
 	@Override
 	public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, AnimationStateDataLoaderParameter parameter) {
+		// Left behind by an earlier load of the file that failed before loadSync()
+		synchronized (pending) {
+			pending.remove(fileName);
+		}
+		
 		SkeletonDataLoaderParameter skeletonParam = new SkeletonDataLoaderParameter();
 		skeletonParam.atlasName = parameter.atlasName;
 		skeletonParam.scale = Env.pixelsToMetres * parameter.scale;
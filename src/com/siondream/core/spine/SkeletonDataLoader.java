@@ -8,6 +8,7 @@ import com.badlogic.gdx.assets.loaders.FileHandleResolver;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.esotericsoftware.spine.SkeletonBinary;
 import com.esotericsoftware.spine.SkeletonData;
 import com.esotericsoftware.spine.SkeletonJson;
@@ -29,20 +30,23 @@ import com.siondream.core.Env;
 * assetManager.load("data/spine/character.skel", SkeletonData.class, parameter);
 * }
 * </pre>
+ * Skeletons read in loadAsync() are kept per file name until loadSync() picks them up,
+ * so a single instance can load several files at the same time.
  * @author Alvaro Barbeira */
 public class SkeletonDataLoader
 	extends AsynchronousAssetLoader<SkeletonData,
 									SkeletonDataLoader.SkeletonDataLoaderParameter> {
 
-	SkeletonData skeletonData;
+	private ObjectMap<String, SkeletonData> pending;
 	
 	public SkeletonDataLoader( FileHandleResolver resolver) {
 		super(resolver);
+		pending = new ObjectMap<String, SkeletonData>();
 	}
 
 	@Override
 	public void loadAsync( AssetManager manager, String fileName, FileHandle file, SkeletonDataLoaderParameter parameter) {
-		skeletonData = null;
+		SkeletonData skeletonData = null;
 		TextureAtlas atlas = manager.get(parameter.atlasName, TextureAtlas.class);
 		
 		String extension = file.extension();
@@ -55,16 +59,27 @@ public class SkeletonDataLoader
 			skeletonJson.setScale(parameter.scale);
 			skeletonData = skeletonJson.readSkeletonData(file);			
 		}
+		
+		synchronized (pending) {
+			pending.put(fileName, skeletonData);
+		}
 	}
 
 	@Override
 	public SkeletonData loadSync( AssetManager manager, String fileName, FileHandle file, SkeletonDataLoaderParameter parameter) {
-		return skeletonData;
+		synchronized (pending) {
+			return pending.remove(fileName);
+		}
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	@Override
 	public Array<AssetDescriptor> getDependencies( String fileName, FileHandle file, SkeletonDataLoaderParameter parameter) {
+		// Left behind by an earlier load of the file that failed before loadSync()
+		synchronized (pending) {
+			pending.remove(fileName);
+		}
+		
 		Array<AssetDescriptor> deps = new Array<AssetDescriptor>();
 		deps.add(new AssetDescriptor(parameter.atlasName, TextureAtlas.class));
 		return deps;
@@ -0,0 +1,218 @@
+package com.siondream.core.entity.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.siondream.core.entity.factory.ArchetypeCache.ArchetypeSource;
+
+public class ArchetypeCacheTest {
+
+	private static final String ENEMY = "entities/enemy.json";
+	private static final String PLAYER = "entities/player.json";
+
+	private Files files;
+	private FileHandle root;
+	private FileHandle list;
+	private FileHandle cache;
+	private Array<ArchetypeSource> sources;
+
+	@Before
+	public void setUp() throws IOException {
+		File directory = File.createTempFile("archetypes", "");
+		directory.delete();
+		root = new FileHandle(directory);
+		root.mkdirs();
+
+		files = Gdx.files;
+		Gdx.files = new RootedFiles(root);
+
+		list = root.child("entities.json");
+		list.writeString("[\"" + ENEMY + "\", \"" + PLAYER + "\"]", false);
+		cache = root.child("archetypes.bin");
+
+		sources = new Array<ArchetypeSource>();
+		sources.add(newSource(ENEMY, "enemy", "[{\"class\": \"Transform\", \"scale\": 2.5, \"isStatic\": false}," +
+											  "{\"class\": \"State\", \"id\": 3, \"tags\": [\"a\", \"b\", null]}]"));
+		sources.add(newSource(PLAYER, "player", "[{\"class\": \"Color\", \"color\": {\"r\": 1, \"g\": 0.5}}]"));
+	}
+
+	@After
+	public void tearDown() {
+		Gdx.files = files;
+		root.deleteDirectory();
+	}
+
+	@Test
+	public void missingCacheReadsNull() throws IOException {
+		assertNull(ArchetypeCache.read(cache, list));
+	}
+
+	@Test
+	public void roundTripKeepsComponentTrees() throws IOException {
+		ArchetypeCache.write(cache, list, sources);
+		Array<ArchetypeSource> read = ArchetypeCache.read(cache, list);
+
+		assertNotNull(read);
+		assertEquals(sources.size, read.size);
+
+		for (int i = 0; i < sources.size; ++i) {
+			ArchetypeSource expected = sources.get(i);
+			ArchetypeSource actual = read.get(i);
+
+			assertEquals(expected.path, actual.path);
+			assertEquals(expected.name, actual.name);
+			assertEquals(expected.components.size, actual.components.size);
+
+			for (int j = 0; j < expected.components.size; ++j) {
+				assertSameTree(expected.components.get(j), actual.components.get(j));
+			}
+		}
+	}
+
+	@Test
+	public void changedLengthMakesCacheStale() throws IOException {
+		ArchetypeCache.write(cache, list, sources);
+		root.child(ENEMY).writeString(" ", true);
+
+		assertNull(ArchetypeCache.read(cache, list));
+	}
+
+	@Test
+	public void changedModificationTimeMakesCacheStale() throws IOException {
+		ArchetypeCache.write(cache, list, sources);
+		File file = root.child(PLAYER).file();
+		assertTrue(file.setLastModified(file.lastModified() - 10000));
+
+		assertNull(ArchetypeCache.read(cache, list));
+	}
+
+	@Test
+	public void changedListMakesCacheStale() throws IOException {
+		ArchetypeCache.write(cache, list, sources);
+		list.writeString("[\"" + ENEMY + "\"]", false);
+
+		assertNull(ArchetypeCache.read(cache, list));
+	}
+
+	@Test
+	public void missingArchetypeMakesCacheStale() throws IOException {
+		ArchetypeCache.write(cache, list, sources);
+		root.child(ENEMY).delete();
+
+		assertNull(ArchetypeCache.read(cache, list));
+	}
+
+	@Test
+	public void foreignFileReadsNull() throws IOException {
+		cache.writeString("not an archetype cache", false);
+
+		assertNull(ArchetypeCache.read(cache, list));
+	}
+
+	private ArchetypeSource newSource(String path, String name, String components) {
+		root.child(path).writeString(components, false);
+
+		JsonValue value = new JsonReader().parse(components);
+		Array<JsonValue> array = new Array<JsonValue>();
+
+		for (JsonValue component = value.child(); component != null; component = component.next()) {
+			array.add(component);
+		}
+
+		return new ArchetypeSource(path, name, array);
+	}
+
+	private static void assertSameTree(JsonValue expected, JsonValue actual) {
+		assertEquals(expected.name(), actual.name());
+		assertEquals(expected.type(), actual.type());
+		assertEquals(expected.size, actual.size);
+
+		if (expected.isObject() || expected.isArray()) {
+			JsonValue actualChild = actual.child();
+
+			for (JsonValue child = expected.child(); child != null; child = child.next()) {
+				assertSameTree(child, actualChild);
+				actualChild = actualChild.next();
+			}
+		}
+		else if (!expected.isNull()) {
+			assertEquals(expected.asString(), actual.asString());
+		}
+	}
+
+	/**
+	 * Resolves internal and local paths against a directory
+	 */
+	private static class RootedFiles implements Files {
+		private FileHandle root;
+
+		public RootedFiles(FileHandle root) {
+			this.root = root;
+		}
+
+		@Override
+		public FileHandle getFileHandle(String path, FileType type) {
+			return root.child(path);
+		}
+
+		@Override
+		public FileHandle classpath(String path) {
+			return root.child(path);
+		}
+
+		@Override
+		public FileHandle internal(String path) {
+			return root.child(path);
+		}
+
+		@Override
+		public FileHandle external(String path) {
+			return root.child(path);
+		}
+
+		@Override
+		public FileHandle absolute(String path) {
+			return new FileHandle(path);
+		}
+
+		@Override
+		public FileHandle local(String path) {
+			return root.child(path);
+		}
+
+		@Override
+		public String getExternalStoragePath() {
+			return root.path();
+		}
+
+		@Override
+		public boolean isExternalStorageAvailable() {
+			return true;
+		}
+
+		@Override
+		public String getLocalStoragePath() {
+			return root.path();
+		}
+
+		@Override
+		public boolean isLocalStorageAvailable() {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.siondream.core.entity.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ashley.core.Component;
+import ashley.core.Entity;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Disposable;
+import com.siondream.core.entity.components.ColorComponent;
+import com.siondream.core.entity.components.TransformComponent;
+import com.siondream.core.entity.factory.ComponentReaders.ColorComponentReader;
+import com.siondream.core.entity.factory.ComponentReaders.TransformComponentReader;
+import com.siondream.core.entity.factory.EntityFactory.ComponentCloner;
+import com.siondream.core.entity.factory.EntityFactory.ComponentRecycler;
+
+public class SpawnPlanTest {
+
+	private ColorComponent colorPrototype;
+	private ProbeComponent probePrototype;
+	private TransformComponent transformPrototype;
+	private ProbeReader probeReader;
+
+	@Before
+	public void setUp() {
+		colorPrototype = new ColorComponent();
+		colorPrototype.color.set(Color.RED);
+		probePrototype = new ProbeComponent();
+		transformPrototype = new TransformComponent();
+		transformPrototype.position.set(1.0f, 2.0f, 3.0f);
+		transformPrototype.angle = 45.0f;
+		probeReader = new ProbeReader();
+	}
+
+	@Test
+	public void spawnClonesPrototypes() {
+		SpawnPlan plan = newPlan(true, 4);
+		Entity entity = plan.spawn();
+
+		assertEquals(3, entity.getComponents().getSize());
+
+		TransformComponent transform = entity.getComponent(TransformComponent.class);
+		assertNotSame(transformPrototype, transform);
+		assertEquals(transformPrototype.position, transform.position);
+		assertEquals(Color.RED, entity.getComponent(ColorComponent.class).color);
+	}
+
+	@Test
+	public void freedEntitiesAreReusedWithPrototypeState() {
+		SpawnPlan plan = newPlan(true, 4);
+		Entity entity = plan.spawn();
+		entity.getComponent(TransformComponent.class).position.set(10.0f, 10.0f, 0.0f);
+		entity.getComponent(ColorComponent.class).color.set(Color.BLUE);
+
+		assertTrue(plan.free(entity));
+		assertEquals(1, plan.getPoolSize());
+		assertEquals(1, probeReader.released);
+
+		assertSame(entity, plan.spawn());
+		assertEquals(0, plan.getPoolSize());
+		assertEquals(1, probeReader.reused);
+		assertEquals(transformPrototype.position, entity.getComponent(TransformComponent.class).position);
+		assertEquals(Color.RED, entity.getComponent(ColorComponent.class).color);
+	}
+
+	@Test
+	public void transformIsRestoredBeforeOtherComponents() {
+		SpawnPlan plan = newPlan(true, 4);
+		Entity entity = plan.spawn();
+		entity.getComponent(TransformComponent.class).angle = 0.0f;
+		plan.free(entity);
+		plan.spawn();
+
+		// The probe comes before the transform in the archetype
+		assertEquals(transformPrototype.angle, probeReader.angleOnReuse, 0.0f);
+	}
+
+	@Test
+	public void fullPoolLeavesEntityUntouched() {
+		SpawnPlan plan = newPlan(true, 1);
+		Entity first = plan.spawn();
+		Entity second = plan.spawn();
+
+		assertTrue(plan.free(first));
+		assertFalse(plan.free(second));
+		assertEquals(1, plan.getPoolSize());
+		assertEquals(1, probeReader.released);
+	}
+
+	@Test
+	public void modifiedEntitiesAreNotPooled() {
+		SpawnPlan plan = newPlan(true, 4);
+		Entity entity = plan.spawn();
+		entity.remove(ColorComponent.class);
+
+		assertFalse(plan.free(entity));
+		assertEquals(0, plan.getPoolSize());
+		assertEquals(0, probeReader.released);
+	}
+
+	@Test
+	public void archetypesWithoutRecyclersAreNotPooled() {
+		SpawnPlan plan = newPlan(false, 4);
+
+		assertFalse(plan.isPooled());
+		assertFalse(plan.free(plan.spawn()));
+	}
+
+	@Test
+	public void discardResetsAndDisposesComponents() {
+		SpawnPlan plan = newPlan(true, 4);
+		Entity entity = plan.spawn();
+		entity.getComponent(TransformComponent.class).position.set(10.0f, 10.0f, 0.0f);
+
+		SpawnPlan.discard(entity);
+
+		assertEquals(0.0f, entity.getComponent(TransformComponent.class).position.len(), 0.0f);
+		assertTrue(entity.getComponent(ProbeComponent.class).disposed);
+	}
+
+	@Test
+	public void clearPoolDiscardsPooledEntities() {
+		SpawnPlan plan = newPlan(true, 4);
+		Entity entity = plan.spawn();
+		plan.free(entity);
+
+		plan.clearPool();
+
+		assertEquals(0, plan.getPoolSize());
+		assertTrue(entity.getComponent(ProbeComponent.class).disposed);
+		assertNotSame(entity, plan.spawn());
+	}
+
+	private SpawnPlan newPlan(boolean pooled, int maxPoolSize) {
+		ColorComponentReader colorReader = new ColorComponentReader();
+		TransformComponentReader transformReader = new TransformComponentReader();
+
+		Component[] prototypes = { colorPrototype, probePrototype, transformPrototype };
+		ComponentCloner[] cloners = { colorReader, probeReader, transformReader };
+		ComponentRecycler[] recyclers = { colorReader, probeReader, transformReader };
+
+		return new SpawnPlan("test", prototypes, cloners, pooled ? recyclers : null, maxPoolSize);
+	}
+
+	private static class ProbeComponent extends Component implements Disposable {
+		boolean disposed;
+
+		@Override
+		public void dispose() {
+			disposed = true;
+		}
+	}
+
+	private static class ProbeReader implements ComponentCloner, ComponentRecycler {
+		int released;
+		int reused;
+		float angleOnReuse;
+
+		@Override
+		public Component copy(Component component) {
+			return new ProbeComponent();
+		}
+
+		@Override
+		public void release(Component component) {
+			++released;
+		}
+
+		@Override
+		public void reuse(Entity entity, Component prototype, Component component) {
+			++reused;
+			angleOnReuse = entity.getComponent(TransformComponent.class).angle;
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.siondream.core.physics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+/**
+ * Runs a real Box2D world, needs the desktop natives on the classpath
+ */
+public class CollisionHandlerTest {
+
+	private static final short CATEGORY_A = 0x0001;
+	private static final short CATEGORY_B = 0x0002;
+	private static final short CATEGORY_C = 0x0004;
+	private static final short CATEGORY_LAST = (short)0x8000;
+
+	private World world;
+	private CollisionHandler handler;
+
+	@BeforeClass
+	public static void loadNatives() {
+		GdxNativesLoader.load();
+	}
+
+	@Before
+	public void setUp() {
+		world = new World(new Vector2(0.0f, 0.0f), false);
+		handler = new CollisionHandler();
+		world.setContactListener(handler);
+	}
+
+	@After
+	public void tearDown() {
+		world.dispose();
+	}
+
+	@Test
+	public void notifiesListenersOfTheCollidingPair() {
+		CountingListener pair = new CountingListener();
+		CountingListener other = new CountingListener();
+		handler.addListener(CATEGORY_A, CATEGORY_B, pair);
+		handler.addListener(CATEGORY_A, CATEGORY_C, other);
+
+		createBody(CATEGORY_A, 0.0f);
+		createBody(CATEGORY_B, 0.5f);
+		world.step(1.0f / 60.0f, 8, 3);
+
+		assertEquals(1, pair.begin);
+		assertTrue(pair.preSolve > 0);
+		assertTrue(pair.postSolve > 0);
+		assertEquals(0, other.begin);
+	}
+
+	@Test
+	public void pairOrderDoesNotMatter() {
+		CountingListener listener = new CountingListener();
+		handler.addListener(CATEGORY_B, CATEGORY_A, listener);
+
+		createBody(CATEGORY_A, 0.0f);
+		createBody(CATEGORY_B, 0.5f);
+		world.step(1.0f / 60.0f, 8, 3);
+
+		assertEquals(1, listener.begin);
+	}
+
+	@Test
+	public void highestCategoryBitIsDispatched() {
+		CountingListener listener = new CountingListener();
+		handler.addListener(CATEGORY_LAST, CATEGORY_LAST, listener);
+
+		createBody(CATEGORY_LAST, 0.0f);
+		createBody(CATEGORY_LAST, 0.5f);
+		world.step(1.0f / 60.0f, 8, 3);
+
+		assertEquals(1, listener.begin);
+	}
+
+	@Test
+	public void listenerMatchingSeveralBitsIsNotifiedOnce() {
+		CountingListener listener = new CountingListener();
+		handler.addListener(CATEGORY_A, CATEGORY_B, listener);
+		handler.addListener(CATEGORY_C, CATEGORY_B, listener);
+
+		createBody((short)(CATEGORY_A | CATEGORY_C), 0.0f);
+		createBody(CATEGORY_B, 0.5f);
+		world.step(1.0f / 60.0f, 8, 3);
+
+		assertEquals(1, listener.begin);
+	}
+
+	@Test
+	public void combinedCategoriesRegisterEveryPair() {
+		CountingListener listener = new CountingListener();
+		handler.addListener((short)(CATEGORY_A | CATEGORY_C), CATEGORY_B, listener);
+
+		createBody(CATEGORY_C, 0.0f);
+		createBody(CATEGORY_B, 0.5f);
+		world.step(1.0f / 60.0f, 8, 3);
+
+		assertEquals(1, listener.begin);
+	}
+
+	@Test
+	public void removedListenersAreNotNotified() {
+		CountingListener removed = new CountingListener();
+		CountingListener kept = new CountingListener();
+		handler.addListener(CATEGORY_A, CATEGORY_B, removed);
+		handler.addListener(CATEGORY_A, CATEGORY_B, kept);
+		handler.removeListener(CATEGORY_B, CATEGORY_A, removed);
+
+		createBody(CATEGORY_A, 0.0f);
+		createBody(CATEGORY_B, 0.5f);
+		world.step(1.0f / 60.0f, 8, 3);
+
+		assertEquals(0, removed.begin);
+		assertEquals(1, kept.begin);
+	}
+
+	@Test
+	public void endContactIsDispatched() {
+		CountingListener listener = new CountingListener();
+		handler.addListener(CATEGORY_A, CATEGORY_B, listener);
+
+		createBody(CATEGORY_A, 0.0f);
+		Body body = createBody(CATEGORY_B, 0.5f);
+		world.step(1.0f / 60.0f, 8, 3);
+
+		body.setTransform(100.0f, 0.0f, 0.0f);
+		world.step(1.0f / 60.0f, 8, 3);
+
+		assertEquals(1, listener.begin);
+		assertEquals(1, listener.end);
+	}
+
+	private Body createBody(short category, float x) {
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyDef.BodyType.DynamicBody;
+		bodyDef.position.set(x, 0.0f);
+
+		CircleShape shape = new CircleShape();
+		shape.setRadius(1.0f);
+
+		FixtureDef fixtureDef = new FixtureDef();
+		fixtureDef.shape = shape;
+		fixtureDef.filter.categoryBits = category;
+
+		Body body = world.createBody(bodyDef);
+		body.createFixture(fixtureDef);
+		shape.dispose();
+		return body;
+	}
+
+	private static class CountingListener implements ContactListener {
+		int begin;
+		int end;
+		int preSolve;
+		int postSolve;
+
+		@Override
+		public void beginContact(Contact contact) {
+			++begin;
+		}
+
+		@Override
+		public void endContact(Contact contact) {
+			++end;
+		}
+
+		@Override
+		public void preSolve(Contact contact, Manifold oldManifold) {
+			++preSolve;
+		}
+
+		@Override
+		public void postSolve(Contact contact, ContactImpulse impulse) {
+			++postSolve;
+		}
+	}
+}
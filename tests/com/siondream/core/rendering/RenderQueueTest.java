@@ -0,0 +1,165 @@
+package com.siondream.core.rendering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.siondream.core.entity.components.TextureComponent;
+import com.siondream.core.entity.components.TransformComponent;
+import com.siondream.core.rendering.RenderQueue.RenderItem;
+
+public class RenderQueueTest {
+
+	private RenderQueue queue;
+	private Texture textureA;
+	private Texture textureB;
+
+	@Before
+	public void setUp() {
+		queue = new RenderQueue(4);
+		textureA = TestTextures.newTexture(32, 32);
+		textureB = TestTextures.newTexture(32, 32);
+
+		// Ids follow registration order
+		assertEquals(1, queue.getTextureID(textureA));
+		assertEquals(2, queue.getTextureID(textureB));
+	}
+
+	@Test
+	public void sortsFarthestFirst() {
+		RenderItem near = newItem(0.0f, null);
+		RenderItem far = newItem(3.0f, null);
+		RenderItem behind = newItem(-2.0f, null);
+		RenderItem middle = newItem(1.0f, null);
+
+		addAndSort(near, far, behind, middle);
+
+		assertOrder(far, middle, near, behind);
+	}
+
+	@Test
+	public void keepsSubUnitDepthDifferences() {
+		RenderItem a = newItem(0.25f, null);
+		RenderItem b = newItem(0.5f, null);
+		RenderItem c = newItem(0.375f, null);
+
+		addAndSort(a, b, c);
+
+		assertOrder(b, c, a);
+	}
+
+	@Test
+	public void groupsByTextureAtSameDepth() {
+		RenderItem b1 = newItem(1.0f, textureB);
+		RenderItem a1 = newItem(1.0f, textureA);
+		RenderItem b2 = newItem(1.0f, textureB);
+		RenderItem a2 = newItem(1.0f, textureA);
+
+		addAndSort(b1, a1, b2, a2);
+
+		// Same texture keeps insertion order
+		assertOrder(a1, a2, b1, b2);
+	}
+
+	@Test
+	public void depthWinsOverTexture() {
+		RenderItem nearA = newItem(0.0f, textureA);
+		RenderItem farB = newItem(1.0f, textureB);
+
+		addAndSort(nearA, farB);
+
+		assertOrder(farB, nearA);
+	}
+
+	@Test
+	public void groupsByTextureWithinDepthBand() {
+		queue.setDepthBand(10.0f);
+
+		RenderItem b5 = newItem(5.0f, textureB);
+		RenderItem a1 = newItem(1.0f, textureA);
+		RenderItem b3 = newItem(3.0f, textureB);
+		RenderItem a20 = newItem(20.0f, textureA);
+
+		addAndSort(b5, a1, b3, a20);
+
+		assertOrder(a20, a1, b5, b3);
+	}
+
+	@Test
+	public void growsPastInitialCapacity() {
+		RenderItem[] items = new RenderItem[20];
+
+		for (int i = 0; i < items.length; ++i) {
+			items[i] = newItem(i, null);
+			queue.add(items[i]);
+		}
+
+		queue.sort();
+
+		assertEquals(items.length, queue.size());
+
+		for (int i = 0; i < items.length; ++i) {
+			assertSame(items[items.length - 1 - i], queue.get(i));
+		}
+	}
+
+	@Test
+	public void textureIDsWrapSkippingZero() {
+		// Ids 1 and 2 are taken, 4093 more exhaust the 12 bits
+		for (int i = 3; i <= 4095; ++i) {
+			assertEquals(i, queue.getTextureID(TestTextures.newTexture(1, 1)));
+		}
+
+		assertEquals(1, queue.getTextureID(TestTextures.newTexture(1, 1)));
+	}
+
+	@Test
+	public void resetIDsForgetsTexturesAndRefreshesItems() {
+		RenderItem item = newItem(0.0f, textureB);
+		queue.add(item);
+		assertEquals(2, item.getTextureID());
+
+		queue.clear();
+		queue.resetIDs();
+
+		assertEquals(1, queue.getTextureID(TestTextures.newTexture(32, 32)));
+		assertEquals(2, queue.getTextureID(TestTextures.newTexture(32, 32)));
+
+		// The item cached id 2 before the reset, it must look textureB up again
+		queue.add(item);
+		assertEquals(3, item.getTextureID());
+	}
+
+	private void addAndSort(RenderItem... items) {
+		for (RenderItem item : items) {
+			queue.add(item);
+		}
+
+		queue.sort();
+	}
+
+	private void assertOrder(RenderItem... items) {
+		assertEquals(items.length, queue.size());
+
+		for (int i = 0; i < items.length; ++i) {
+			assertSame("item " + i, items[i], queue.get(i));
+		}
+	}
+
+	private static RenderItem newItem(float depth, Texture texture) {
+		RenderItem item = new RenderItem();
+		item.transform = new TransformComponent();
+		item.transform.position.z = depth;
+
+		if (texture != null) {
+			item.texture = new TextureComponent();
+			item.texture.region = new TextureRegion(texture);
+		}
+
+		return item;
+	}
+}
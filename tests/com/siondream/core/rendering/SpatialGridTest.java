@@ -0,0 +1,184 @@
+package com.siondream.core.rendering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.siondream.core.Env;
+import com.siondream.core.entity.components.TextureComponent;
+import com.siondream.core.entity.components.TransformComponent;
+import com.siondream.core.rendering.RenderQueue.RenderItem;
+
+public class SpatialGridTest {
+
+	private float pixelsToMetres;
+	private SpatialGrid grid;
+	private RenderQueue queue;
+
+	@Before
+	public void setUp() {
+		// One metre per pixel, a 2x2 region has a radius of sqrt(2)
+		pixelsToMetres = Env.pixelsToMetres;
+		Env.pixelsToMetres = 1.0f;
+		grid = new SpatialGrid(4.0f);
+		queue = new RenderQueue();
+	}
+
+	@After
+	public void tearDown() {
+		Env.pixelsToMetres = pixelsToMetres;
+	}
+
+	@Test
+	public void queryReturnsOverlappingItemsOnly() {
+		RenderItem inside = newItem(1.0f, 1.0f, true);
+		RenderItem outside = newItem(50.0f, 50.0f, true);
+		grid.add(inside);
+		grid.add(outside);
+
+		query(-5.0f, -5.0f, 5.0f, 5.0f);
+
+		assertEquals(1, queue.size());
+		assertTrue(contains(inside));
+	}
+
+	@Test
+	public void itemSpanningCellsIsReturnedOnce() {
+		// Centred on a cell corner, the item overlaps four cells
+		RenderItem item = newItem(4.0f, 4.0f, true);
+		grid.add(item);
+
+		query(-10.0f, -10.0f, 10.0f, 10.0f);
+
+		assertEquals(4, grid.getNumCells());
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void updateMovesDynamicItems() {
+		RenderItem item = newItem(0.0f, 0.0f, false);
+		grid.add(item);
+
+		item.transform.position.set(40.0f, 40.0f, 0.0f);
+		grid.update();
+
+		query(-5.0f, -5.0f, 5.0f, 5.0f);
+		assertEquals(0, queue.size());
+
+		query(35.0f, 35.0f, 45.0f, 45.0f);
+		assertTrue(contains(item));
+	}
+
+	@Test
+	public void removedItemsAreNotReturned() {
+		RenderItem staticItem = newItem(0.0f, 0.0f, true);
+		RenderItem dynamicA = newItem(1.0f, 0.0f, false);
+		RenderItem dynamicB = newItem(2.0f, 0.0f, false);
+		grid.add(staticItem);
+		grid.add(dynamicA);
+		grid.add(dynamicB);
+
+		grid.remove(staticItem);
+		grid.remove(dynamicA);
+
+		// dynamicB took the slot of dynamicA and must still be updated
+		dynamicB.transform.position.set(20.0f, 0.0f, 0.0f);
+		grid.update();
+
+		query(-5.0f, -5.0f, 5.0f, 5.0f);
+		assertEquals(0, queue.size());
+
+		query(15.0f, -5.0f, 25.0f, 5.0f);
+		assertEquals(1, queue.size());
+		assertTrue(contains(dynamicB));
+	}
+
+	@Test
+	public void oversizedItemsAreAlwaysTested() {
+		RenderItem huge = newItem(0.0f, 0.0f, true);
+		huge.transform.scale = 1000.0f;
+		grid.add(huge);
+
+		assertEquals(0, grid.getNumCells());
+
+		query(500.0f, 500.0f, 510.0f, 510.0f);
+		assertTrue(contains(huge));
+
+		query(5000.0f, 5000.0f, 5010.0f, 5010.0f);
+		assertFalse(contains(huge));
+	}
+
+	@Test
+	public void extremeBoundsDoNotOverflow() {
+		RenderItem infinite = newItem(0.0f, 0.0f, false);
+		infinite.transform.scale = Float.POSITIVE_INFINITY;
+		RenderItem far = newItem(1e30f, -1e30f, true);
+		RenderItem invalid = newItem(Float.NaN, 0.0f, false);
+		grid.add(infinite);
+		grid.add(far);
+		grid.add(invalid);
+		grid.update();
+
+		query(-1.0f, -1.0f, 1.0f, 1.0f);
+		assertTrue(contains(infinite));
+		assertFalse(contains(far));
+	}
+
+	@Test
+	public void unboundedQueryVisitsOccupiedCellsOnly() {
+		for (int i = 0; i < 10; ++i) {
+			grid.add(newItem(i * 100.0f, 0.0f, true));
+		}
+
+		query(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+
+		assertEquals(10, queue.size());
+		assertTrue(grid.getVisitedCells() <= grid.getNumCells());
+	}
+
+	@Test
+	public void clearEmptiesTheGrid() {
+		RenderItem item = newItem(0.0f, 0.0f, false);
+		grid.add(item);
+		grid.clear();
+
+		query(-5.0f, -5.0f, 5.0f, 5.0f);
+
+		assertEquals(0, queue.size());
+		assertEquals(0, grid.getNumCells());
+
+		// Items can be added back after clearing
+		grid.add(item);
+		query(-5.0f, -5.0f, 5.0f, 5.0f);
+		assertTrue(contains(item));
+	}
+
+	private void query(float minX, float minY, float maxX, float maxY) {
+		queue.clear();
+		grid.query(minX, minY, maxX, maxY, queue);
+	}
+
+	private boolean contains(RenderItem item) {
+		for (int i = 0; i < queue.size(); ++i) {
+			if (queue.get(i) == item) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static RenderItem newItem(float x, float y, boolean isStatic) {
+		RenderItem item = new RenderItem();
+		item.transform = new TransformComponent();
+		item.transform.position.set(x, y, 0.0f);
+		item.transform.isStatic = isStatic;
+		item.texture = new TextureComponent();
+		item.texture.region = TestTextures.newRegion(2, 2);
+		return item;
+	}
+}
@@ -0,0 +1,126 @@
+package com.siondream.core.rendering;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * @class TestTextures
+ *
+ * @brief Creates textures without a GL context for tests
+ *
+ * Gdx.gl is replaced by a proxy ignoring every call, textures are only
+ * usable as keys and for their size.
+ */
+public class TestTextures {
+
+	public static void install() {
+		if (Gdx.gl != null) {
+			return;
+		}
+
+		GL20 gl = (GL20)Proxy.newProxyInstance(GL20.class.getClassLoader(),
+											   new Class<?>[] { GL20.class },
+											   new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				Class<?> type = method.getReturnType();
+
+				if (type == boolean.class) {
+					return false;
+				}
+				else if (type == int.class) {
+					return 0;
+				}
+				else if (type == float.class) {
+					return 0.0f;
+				}
+
+				return null;
+			}
+		});
+
+		Gdx.gl = gl;
+		Gdx.gl20 = gl;
+	}
+
+	public static Texture newTexture(int width, int height) {
+		install();
+		return new Texture(new SizeData(width, height));
+	}
+
+	public static TextureRegion newRegion(int width, int height) {
+		return new TextureRegion(newTexture(width, height));
+	}
+
+	private static class SizeData implements TextureData {
+		private int width;
+		private int height;
+
+		public SizeData(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public TextureDataType getType() {
+			return TextureDataType.Compressed;
+		}
+
+		@Override
+		public boolean isPrepared() {
+			return true;
+		}
+
+		@Override
+		public void prepare() {
+		}
+
+		@Override
+		public Pixmap consumePixmap() {
+			return null;
+		}
+
+		@Override
+		public boolean disposePixmap() {
+			return false;
+		}
+
+		@Override
+		public void consumeCompressedData(int target) {
+		}
+
+		@Override
+		public int getWidth() {
+			return width;
+		}
+
+		@Override
+		public int getHeight() {
+			return height;
+		}
+
+		@Override
+		public Format getFormat() {
+			return Format.RGBA8888;
+		}
+
+		@Override
+		public boolean useMipMaps() {
+			return false;
+		}
+
+		@Override
+		public boolean isManaged() {
+			return false;
+		}
+	}
+}
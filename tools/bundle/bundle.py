@@ -0,0 +1,226 @@
+#!/usr/bin/python
+# -*- coding: utf-8 -*-
+
+import argparse
+import json
+import os
+import posixpath
+import re
+import struct
+
+MAGIC = 0x534e424c
+VERSION = 1
+
+SOURCE_PATTERN = re.compile(r'source="(?P<path>[^"]+)"')
+FONT_PAGE_PATTERN = re.compile(r'^page .*file="(?P<path>[^"]+)"')
+
+try:
+	STRING_TYPES = basestring
+except NameError:
+	STRING_TYPES = str
+
+def parseArguments():
+	parser = argparse.ArgumentParser(description='packs asset groups into bundles readable by AssetBundle')
+	parser.add_argument('-a', '--assets', help='asset groups file, e.g. data/config/assets.json', required=True)
+	parser.add_argument('-g', '--group', help='group to pack, all groups if omitted', action='append')
+	parser.add_argument('-r', '--root', help='directory asset paths are relative to', default='.')
+	parser.add_argument('-o', '--output', help='directory bundles are written to', required=True)
+	return parser.parse_args()
+
+def normalise(path):
+	return posixpath.normpath(path.replace('\\', '/'))
+
+def relativeTo(path, reference):
+	return normalise(posixpath.join(posixpath.dirname(path), reference))
+
+def readLines(fullPath):
+	textFile = open(fullPath)
+	lines = textFile.read().splitlines()
+	textFile.close()
+	return lines
+
+def atlasDependencies(path, fullPath):
+	# Page names are the first line of every block, blocks are separated by blank lines
+	lines = readLines(fullPath)
+	dependencies = []
+	newPage = True
+	
+	for line in lines:
+		line = line.strip()
+		
+		if len(line) == 0:
+			newPage = True
+		elif newPage:
+			dependencies.append(relativeTo(path, line))
+			newPage = False
+	
+	return dependencies
+
+def fontDependencies(path, fullPath):
+	lines = readLines(fullPath)
+	dependencies = []
+	
+	for line in lines:
+		match = FONT_PAGE_PATTERN.search(line)
+		
+		if match != None:
+			dependencies.append(relativeTo(path, match.group('path')))
+	
+	return dependencies
+
+def mapDependencies(path, fullPath):
+	lines = readLines(fullPath)
+	dependencies = []
+	
+	for line in lines:
+		for match in SOURCE_PATTERN.finditer(line):
+			dependencies.append(relativeTo(path, match.group('path')))
+	
+	return dependencies
+
+def skeletonDependencies(path, fullPath):
+	# Spine exports the atlas next to the skeleton under the same name
+	return [posixpath.splitext(path)[0] + '.atlas']
+
+def jsonDependencies(path, fullPath):
+	# Only Spine skeletons, other JSON files carry their references as loader parameters
+	jsonFile = open(fullPath)
+	
+	try:
+		root = json.load(jsonFile)
+	except ValueError:
+		root = None
+	
+	jsonFile.close()
+	
+	if isinstance(root, dict) and 'bones' in root and 'slots' in root:
+		return skeletonDependencies(path, fullPath)
+	
+	return []
+
+DEPENDENCY_SCANNERS = {
+	'.atlas': atlasDependencies,
+	'.fnt': fontDependencies,
+	'.json': jsonDependencies,
+	'.skel': skeletonDependencies,
+	'.tmx': mapDependencies,
+	'.tsx': mapDependencies,
+}
+
+def parameterFiles(value, root):
+	# Loader parameters may name other files (atlasName, skeletonName...)
+	files = []
+	
+	if isinstance(value, dict):
+		for child in value.values():
+			files.extend(parameterFiles(child, root))
+	elif isinstance(value, list):
+		for child in value:
+			files.extend(parameterFiles(child, root))
+	elif isinstance(value, STRING_TYPES):
+		if os.path.isfile(os.path.join(root, value)):
+			files.append(normalise(value))
+	
+	return files
+
+def collectFiles(assets, root):
+	pending = []
+	
+	for asset in assets:
+		pending.append(normalise(asset['path']))
+		pending.extend(parameterFiles(asset.get('parameters', {}), root))
+		
+		if 'compressed' in asset:
+			pending.append(normalise(asset['compressed']))
+	
+	files = []
+	visited = set()
+	
+	while len(pending) > 0:
+		path = pending.pop(0)
+		
+		if path in visited:
+			continue
+		
+		visited.add(path)
+		fullPath = os.path.join(root, path)
+		
+		if not os.path.isfile(fullPath):
+			print('    * Skipping %s, not found' % path)
+			continue
+		
+		files.append(path)
+		
+		# ETC1 variants are picked at runtime when the GPU supports them
+		variant = posixpath.splitext(path)[0] + '.etc1'
+		
+		if path != variant and os.path.isfile(os.path.join(root, variant)):
+			pending.append(variant)
+		
+		scanner = DEPENDENCY_SCANNERS.get(posixpath.splitext(path)[1].lower())
+		
+		if scanner != None:
+			pending.extend(scanner(path, fullPath))
+	
+	return files
+
+def writeBundle(fileName, root, files):
+	tableSize = 12
+	encodedPaths = []
+	
+	for path in files:
+		encoded = path.encode('utf-8')
+		encodedPaths.append(encoded)
+		tableSize += 2 + len(encoded) + 8
+	
+	totalSize = tableSize
+	entries = []
+	
+	for path in files:
+		size = os.path.getsize(os.path.join(root, path))
+		entries.append((totalSize, size))
+		totalSize += size
+	
+	bundle = open(fileName, 'wb')
+	bundle.write(struct.pack('>iii', MAGIC, VERSION, len(files)))
+	
+	for encoded, (offset, size) in zip(encodedPaths, entries):
+		bundle.write(struct.pack('>H', len(encoded)))
+		bundle.write(encoded)
+		bundle.write(struct.pack('>ii', offset, size))
+	
+	for path in files:
+		source = open(os.path.join(root, path), 'rb')
+		bundle.write(source.read())
+		source.close()
+	
+	bundle.close()
+	
+	print('    * Wrote %s, %d files, %d bytes' % (fileName, len(files), totalSize))
+
+def main():
+	print('\nASSET BUNDLE TOOL')
+	print('=================\n')
+	
+	args = parseArguments()
+	
+	assetsFile = open(args.assets)
+	groups = json.load(assetsFile)
+	assetsFile.close()
+	
+	names = args.group if args.group != None else groups.keys()
+	
+	if not os.path.isdir(args.output):
+		os.makedirs(args.output)
+	
+	for name in names:
+		if name not in groups:
+			print('* Group %s not found, skipping' % name)
+			continue
+		
+		print('* Packing group %s' % name)
+		files = collectFiles(groups[name], args.root)
+		writeBundle(os.path.join(args.output, name + '.bundle'), args.root, files)
+	
+if __name__ == "__main__":
+	main()